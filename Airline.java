@@ -4,121 +4,330 @@
  Access the appropriate local machine: terminal (Mac) or command prompt (Windows)
  To COMPILE: javac Airline.java 
  To RUN: java Airline pennsylvania.txt OR java Airline global.txt
+ A binary snapshot (see GraphSnapshot) can be passed in place of a text file
+ Add --parallel after the file name to search routes on all cores, --bidirectional to search routes
+ of 4 or more hops from both ends (see BidirectionalRouteSearch), and --updates deltas.txt to
+ apply the route changes appended to a delta file while the program runs (see DeltaWatcher);
+ add --bounds to precompute (or load) the all-pairs BoundTable saved next to the network file, and
+ --hierarchies to do the same with the ContractionHierarchy files that speed up single best-route queries
+ For files of queries see BatchQuery, for queries over HTTP see RouteServer
  Author: Caleb Tsai
  */
 
-import java.io.File;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashSet;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Airline {
-    // Attributes of an airline (cities, routes, etc.)
-    private final int V;
-    private int E;
-    private Bag<Edge>[] adj;
-    private ArrayList<String> cities;
-    private ArrayList<Edge> edges;
-    private ArrayList<Route> routes;
-    private boolean addThirdCity = false;
-
-    // Constructor: Read/Pass in info from data file
+    // Most routes kept by the search cache, over all cached queries
+    public static final long CACHE_CAPACITY = 1_000_000;
+
+    // Most routes an interactive search collects, and how long it may run, before it shows what it found
+    public static final long INTERACTIVE_MAX_ROUTES = 1_000_000;
+    public static final long INTERACTIVE_TIMEOUT_MILLIS = 10_000;
+
+    // Fewest hops for which a bidirectional search is used (below it the halves are too short to pay off)
+    public static final int BIDIRECTIONAL_MIN_HOPS = 4;
+
+    // Attributes of an airline (network, city names, search cache); nothing here changes per query,
+    // so one Airline can answer queries from any number of threads. Updates replace the network with
+    // a new version; a query reads graph once and works on that version throughout
+    private volatile FlightGraph graph;
+    private volatile long version = 0;
+    private final ArrayList<String> cities;
+    private final CityIndex index;
+    private final RouteCache cache = new RouteCache(CACHE_CAPACITY);
+    private volatile boolean parallel = false;
+    private volatile boolean bidirectional = false;
+    private volatile boolean hierarchies = false;
+    private final AtomicReference<FlightGraph> pendingHierarchies = new AtomicReference<FlightGraph>();
+    private final ExecutorService hierarchyBuilder = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "hierarchy-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Constructor: Read/Pass in info from data file (a text route file or a GraphSnapshot)
     public Airline(String file) throws IOException {
-        // Assign Scanner object to file, error if V is not valid
-        Scanner read = new Scanner(new File(file));
-        V = read.nextInt();
-        if (V < 0) 
-            throw new RuntimeException("Number of vertices must be nonnegative in this file");
+        this(GraphSnapshot.isSnapshot(file) ? GraphSnapshot.read(file) : RouteFileReader.read(file));
+    }
+
+    // Constructor: Use an already loaded network
+    public Airline(FlightGraph graph) {
+        this.graph = graph;
 
         // Add cities to an ArrayList of String
         cities = new ArrayList<String>();
         
-        for(int i = 0; i < V; i++)
-            cities.add(read.next());
-        
-        // Create an adjacency list of Bags containing direct routes (Edge)
-        adj = (Bag<Edge>[]) new Bag[V];
-        for (int v = 0; v < V; v++) 
-            adj[v] = new Bag<Edge>();
-
-        // Add edges to adjacency list for each direct route (source, destination, distance, cost)
-        while(read.hasNextLine()) {
-            int v = read.nextInt();
-            int w = read.nextInt();
-            double distance = read.nextDouble();
-            double cost = read.nextDouble();
-            String source = cities.get(v);
-            String destination = cities.get(w);
-
-            // Add 2 edges for one route (route goes both ways, switch source and destination)
-            Edge e = new Edge(v, w, distance, cost, source, destination);
-            Edge e2 = new Edge(w, v, distance, cost, destination, source);
-            addEdge(e, true);
-            addEdge(e2, false);
+        for(int i = 0; i < graph.V(); i++)
+            cities.add(graph.city(i));
+
+        // Index the names once for constant-time lookups and spelling suggestions
+        index = new CityIndex(graph);
+    }
+
+    // Choose whether Option 2 searches on all cores (same routes, same order, only faster on large networks)
+    public void setParallel(boolean parallel)   {this.parallel = parallel;}
+
+    // Choose whether searches of BIDIRECTIONAL_MIN_HOPS or more hops (and no required cities) meet in the middle
+    // (same routes, same order; faster when few of the partial routes explored become routes)
+    public void setBidirectional(boolean bidirectional)     {this.bidirectional = bidirectional;}
+
+    // Return the number of cities in the airline
+    public int V()  {return graph.V();}
+
+    // Return the current version of the network
+    public FlightGraph getGraph()   {return graph;}
+
+    // Return the number of updates applied since the network was loaded
+    public long getVersion()    {return version;}
+
+    // Apply updates to the network as one change: queries see either none or all of them. The routes of
+    // the new network are searched from then on, and only the cached searches the updates can affect
+    // are dropped. Throws IllegalArgumentException (and changes nothing) if any update cannot be applied
+    public synchronized void update(List<RouteUpdate> updates) {
+        FlightGraph next = graph;
+        HashSet<Long> changed = new HashSet<Long>();
+        ArrayList<double[]> cheaper = new ArrayList<double[]>();
+        for(RouteUpdate u : updates) {
+            int v = resolve(u.getFrom());
+            int w = resolve(u.getTo());
+            if(u.getKind() == RouteUpdate.Kind.ADD) {
+                next = next.withRoute(v, w, u.getDistance(), u.getCost());
+                cheaper.add(new double[] {v, w, u.getCost(), u.getDistance()});
+            }
+            else if(u.getKind() == RouteUpdate.Kind.REMOVE)
+                next = next.withoutRoute(v, w);
+            else {
+                int a = next.arc(v, w);
+                if(a >= 0 && u.getCost() < next.cost(a))
+                    cheaper.add(new double[] {v, w, u.getCost(), next.distance(a)});
+                next = next.withCost(v, w, u.getCost());
+            }
+            changed.add(pair(v, w));
+        }
+        // Fares that went up and routes taken away leave every bound valid; new and cheaper routes are patched in
+        BoundTable table = BoundTable.of(graph);
+        if(table != null) {
+            boolean patched = true;
+            for(int i = 0; i < cheaper.size() && patched; i++) {
+                double[] c = cheaper.get(i);
+                patched = table.addRoute((int) c[0], (int) c[1], c[2], c[3]);
+            }
+            if(patched)
+                table.attach(next);
+        }
+        graph = next;
+        version++;
+
+        // The new network needs hierarchies of its own; best-route queries search without them until then
+        if(hierarchies)
+            buildHierarchies(next);
+
+        // A cached search is out of date if one of its routes uses a changed route, or if a new or
+        // cheaper route could now complete a route within its budget (judged by the cheapest costs
+        // and fewest hops on the new network, so no search that could gain a route is kept)
+        DestinationBounds[] bounds = new DestinationBounds[2 * cheaper.size()];
+        for(int i = 0; i < cheaper.size(); i++) {
+            bounds[2 * i] = new DestinationBounds(next, (int) cheaper.get(i)[0]);
+            bounds[2 * i + 1] = new DestinationBounds(next, (int) cheaper.get(i)[1]);
         }
+        cache.invalidate((source, destination, maxCost, maxHop, routes) -> {
+            for(int i = 0; i < cheaper.size(); i++) {
+                DestinationBounds toV = bounds[2 * i];
+                DestinationBounds toW = bounds[2 * i + 1];
+                double cost = cheaper.get(i)[2];
+                if(toV.canFinish(source, cost + toW.cost(destination), 1 + toW.hops(destination), maxCost, maxHop)
+                   || toW.canFinish(source, cost + toV.cost(destination), 1 + toV.hops(destination), maxCost, maxHop))
+                    return true;
+            }
+            FlightGraph old = routes.getGraph();
+            int[] arcs = new int[old.V()];
+            for(int r = 0; r < routes.size(); r++) {
+                int v = source;
+                for(int i = 0, hops = routes.arcs(r, arcs); i < hops; i++) {
+                    int w = old.target(arcs[i]);
+                    if(changed.contains(pair(v, w)))
+                        return true;
+                    v = w;
+                }
+            }
+            return false;
+        });
     }
 
-    // Add edge e to corresponding adjacency list of vertices
-    public void addEdge(Edge e, boolean isForward) {
-        int v = e.either();
-        int w = e.other(v);
-        E++;
-        
-        // Forward edge is added (source to destination)
-        if(isForward)
-            if(v < w)
-                adj[v].add(e);
-            else
-                adj[w].add(e);  
-        
-        // Backward edge is added (destination to source)
-        else
-            if(v > w)
-                adj[v].add(e);
-            else
-                adj[w].add(e);
+    // Use the all-pairs BoundTable saved in file, building and saving it first if file does not hold
+    // the table of the current network
+    public void loadBounds(String file) throws IOException {
+        BoundTable.load(graph, file);
     }
 
-    // Return the number of cities in the airline
-    public int V()  {return V;}
+    // Use the contraction hierarchies saved in file, building and saving them first if file does not hold
+    // those of the current network; every later version of the network gets its own, built in the background
+    public void loadHierarchies(String file) throws IOException {
+        ContractionHierarchy.load(graph, file);
+        hierarchies = true;
+    }
+
+    // Have the background builder make the contraction hierarchies of next. One thread builds them, for the
+    // latest version only: a version replaced while it waits is never built, and a build in progress stops
+    // after its current order once a newer version is waiting
+    private void buildHierarchies(FlightGraph next) {
+        if(pendingHierarchies.getAndSet(next) == null)
+            hierarchyBuilder.execute(() -> {
+                FlightGraph latest = pendingHierarchies.getAndSet(null);
+                for(RouteOrder order : ContractionHierarchy.ORDERS) {
+                    if(pendingHierarchies.get() != null)
+                        return;
+                    ContractionHierarchy.build(latest, order);
+                }
+            });
+    }
+
+    // Return the best route under order from graph's ContractionHierarchy: a list of that route, or an empty list
+    // if no route fits the budget. Return null when it cannot tell (no hierarchy for order, or its best route has
+    // too many hops or, when order is not COST, costs too much)
+    private static ArrayList<Route> hierarchyRoute(FlightGraph graph, int source, int destination, RouteOrder order,
+                                                   double maxCost, int maxHop) {
+        ContractionHierarchy hierarchy = ContractionHierarchy.of(graph, order);
+        if(hierarchy == null || source == destination)
+            return null;
+        ArrayList<Route> best = new ArrayList<Route>();
+        int[] arcs = hierarchy.arcs(source, destination);
+        if(arcs == null)
+            return best;
+        double cost = 0.0;
+        double distance = 0.0;
+        for(int a : arcs) {
+            cost += graph.cost(a);
+            distance += graph.distance(a);
+        }
+        if(arcs.length <= maxHop && cost <= maxCost)
+            best.add(new Route(graph, source, arcs, arcs.length, cost, distance));
+        else if(order != RouteOrder.COST || cost <= DestinationBounds.withSlack(maxCost))
+            return null;
+        return best;
+    }
+
+    // Return false if graph's BoundTable (when it has one) proves that no route fits the budget
+    private static boolean feasible(FlightGraph graph, int source, int destination, int[] via, double maxCost, int maxHop) {
+        BoundTable table = BoundTable.of(graph);
+        return table == null || table.feasible(source, destination, via, maxCost, maxHop);
+    }
+
+    // Add a direct route between two cities (see update())
+    public void addRoute(String from, String to, double distance, double cost) {
+        update(Collections.singletonList(RouteUpdate.add(from, to, distance, cost)));
+    }
+
+    // Remove the direct route between two cities (see update())
+    public void removeRoute(String from, String to) {
+        update(Collections.singletonList(RouteUpdate.remove(from, to)));
+    }
+
+    // Change the cost of the direct route between two cities (see update())
+    public void setFare(String from, String to, double cost) {
+        update(Collections.singletonList(RouteUpdate.fare(from, to, cost)));
+    }
+
+    // Return the key of the unordered city pair v, w
+    private static long pair(int v, int w) {
+        return ((long) Math.min(v, w) << 32) | Math.max(v, w);
+    }
 
     // Option 1A: Return names of the cities
     public String getCities() {
-        String display = "Cities Served:\n";
-        for(int i = 0; i < cities.size(); i++)
-            display += "    " + cities.get(i) + "\n";
-
-        return display;
+        StringWriter display = new StringWriter();
+        printCities(display);
+        return display.toString();
     }
 
     // Option 1B: Return direct routes served by airline
     public String getDirectRoutes() {
-        String display = "Direct Routes:\n";
-        display += String.format("%-15s %-15s %-15s %-15s", "From (City)", "To (City)", "Cost ($)", "Distance (Miles)") + "\n";
-        display += String.format("%-15s %-15s %-15s %-15s", "----------", "----------", "----------", "----------") + "\n";
-        
-        // Add each direct route using Edge class toString() method
-        for(int i = 0; i < adj.length; i++)
-            for(Edge e : adj[i])
-                display += e.toString() + "\n";
+        StringWriter display = new StringWriter();
+        printDirectRoutes(display);
+        return display.toString();
+    }
+
+    // Option 1A: Stream the names of the cities to out (line by line, nothing is built up in memory)
+    public void printCities(Writer out) {
+        try {
+            new Listing(out, Listing.Format.TEXT).cities(graph);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Option 1B: Stream the direct routes to out, each one formatted by the Edge class toString() method
+    public void printDirectRoutes(Writer out) {
+        try {
+            new Listing(out, Listing.Format.TEXT).directRoutes(graph);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        return display;
+    // Print routes to the console through one buffered writer (each route followed by a blank line)
+    private static void printRoutes(List<Route> routes) {
+        Writer out = console();
+        try {
+            new Listing(out, Listing.Format.TEXT).routes(routes);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Return a buffered writer over the console (flush it, but never close it)
+    private static Writer console() {
+        return new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
     }
 
+    // Return the name index of the airline's cities
+    public CityIndex getCityIndex()     {return index;}
+
+    // Return the cache of Option 2 searches (invalidate it whenever the network changes)
+    public RouteCache getCache()    {return cache;}
+
+    // Return the message shown for an unknown city, suggesting the closest names instead of listing every city
+    private String notFound(String name) {
+        int[] suggestions = index.suggest(name, 5);
+        String display = "Sorry, your inputted city named \"" + name + "\" is not found. Please check your spelling.\n";
+        if(suggestions.length > 0)
+            return display + "Did you mean: " + index.names(suggestions) + "?\n";
+        return display + "Choose option 1 in the main menu to list the cities served.\n";
+    }
+
+    // Return total number of directed arcs in airline (two per direct route)
+    public int E()  {return graph.E();}
+
     // Return total number of direct routes in airline
-    public int E()  {return E;}
+    public int routes()     {return graph.routes();}
 
     // Return edges incident to vertex v as an Iterable
-    public Iterable<Edge> adj(int v)    {return adj[v];}
+    public Iterable<Edge> adj(int v)    {return graph.adj(v);}
     
     // Option 2: Find a route (source city, destination city, maximum cost, maximum # of hops)
     public void findRoute(Scanner kbd) {
         String source = ""; 
         String destination = "";
         String thirdCity = "N/A";
+        boolean addThirdCity = false;
+        int sourceInt = -1;
+        int destinationInt = -1;
+        int[] via = new int[0];
         double maxCost = 0.0;
         int maxHop = 0;
         boolean go = true;
@@ -131,17 +340,15 @@ public class Airline {
                 source = kbd.next();
 
                 // Validate if user inputted source city exists in the airline (accounts for arbitrary capitalization)
-                for(int i = 0; i < cities.size(); i++) {
-                    if(source.toLowerCase().equals(cities.get(i).toLowerCase())) {
-                        source = cities.get(i);
-                        go = false;
-                        break;
-                    }
+                sourceInt = index.indexOf(source);
+                if(sourceInt >= 0) {
+                    source = index.name(sourceInt);
+                    go = false;
                 }
                 
-                // User inputted city does not exist in airline (display cities that the airline offers)
+                // User inputted city does not exist in airline (suggest the closest city names)
                 if(go)
-                    System.out.println("Sorry, your inputted city named \"" + source + "\" is not found. Please check your spelling.\n" + getCities());
+                    System.out.println(notFound(source));
                 
             } catch (InputMismatchException e) {
                 System.out.println("Invalid Input: Please enter a data type of String.\n");
@@ -158,19 +365,15 @@ public class Airline {
                 destination = kbd.next();
 
                 // Validate if user inputted destination city exists in the airline (accounts for arbitrary capitalization)
-                for(int i = 0; i < cities.size(); i++) {
-                    if(destination.toLowerCase().equals(cities.get(i).toLowerCase())) {
-                        destination = cities.get(i);
-                        go = false;
-                        break;
-                    }
+                destinationInt = index.indexOf(destination);
+                if(destinationInt >= 0) {
+                    destination = index.name(destinationInt);
+                    go = false;
                 }
                 
-                // User inputted city does not exist in airline (display cities that the airline offers)
-                if(go) {
-                    System.out.println("Sorry, your inputted city named \"" + destination + "\" is not found. Please check your spelling.\n" + 
-                    getCities());
-                }
+                // User inputted city does not exist in airline (suggest the closest city names)
+                if(go)
+                    System.out.println(notFound(destination));
                 
             } catch (InputMismatchException e) {
                 System.out.println("Invalid Input: Please enter a data type of String.\n");
@@ -197,23 +400,30 @@ public class Airline {
                 
                     while(go2) {
                         try {
-                            System.out.print("Enter Third City: ");
-                            thirdCity = kbd.next();
-
-                            // Validate if user inputted third city exists in the airline (accounts for arbitrary capitalization)
-                            for(int i = 0; i < cities.size(); i++) {
-                                if(thirdCity.toLowerCase().equals(cities.get(i).toLowerCase())) {
-                                    thirdCity = cities.get(i);
-                                    go2 = false;
-                                    break;
+                            System.out.print("Enter Third City (separate several cities with commas, e.g. Harrisburg,Reading): ");
+                            String[] names = kbd.next().split(",");
+                            via = new int[names.length];
+                            go2 = false;
+
+                            // Validate if each user inputted third city exists in the airline (accounts for arbitrary capitalization)
+                            for(int j = 0; j < names.length && !go2; j++) {
+                                via[j] = index.indexOf(names[j]);
+                                if(via[j] >= 0)
+                                    names[j] = index.name(via[j]);
+                                
+                                // User inputted city does not exist in airline (suggest the closest city names)
+                                else {
+                                    System.out.println(notFound(names[j]));
+                                    go2 = true;
                                 }
                             }
-                            
-                            // User inputted city does not exist in airline (display cities that the airline offers)
-                            if(go2) {
-                                System.out.println("Sorry, your inputted city named \"" + thirdCity + "\" is not found. Please check your spelling.\n" + 
-                                getCities());
+
+                            // Too many cities for the search to track
+                            if(!go2 && via.length > ViaCities.MAX_CITIES) {
+                                System.out.println("Sorry, at most " + ViaCities.MAX_CITIES + " cities can be required on a route\n");
+                                go2 = true;
                             }
+                            thirdCity = String.join(", ", names);
                             
                         } catch (InputMismatchException e) {
                             System.out.println("Invalid Input: Please enter a data type of String.\n");
@@ -272,16 +482,11 @@ public class Airline {
         // Find ALL simple routes that meet the specified user-inputted criteria, storing them in a Route class
         // Assume the cost of a multi-hop route is additice (total cost --> sum of costs of individual hops)
         
-        boolean[] marked = new boolean[V];     
-        int sourceInt = cities.indexOf(source);
-        int destinationInt = cities.indexOf(destination);
-        edges = new ArrayList<Edge>();
-        routes = new ArrayList<Route>();
-
-        // Call dfs helper method
-        dfs(marked, edges, routes, sourceInt, destinationInt, 0, maxCost, 0, maxHop, 0, thirdCity);
+        // Enumerate routes (the search itself only produces routes through the third city, if one was given)
+        SearchLimits limits = new SearchLimits(INTERACTIVE_MAX_ROUTES, INTERACTIVE_TIMEOUT_MILLIS);
+        RouteSet routes = findAllRoutes(sourceInt, destinationInt, via, maxCost, maxHop, limits);
 
-        // Identify the number of total routes via a collection of Routes --> ArrayList<Route>
+        // Identify the number of total routes via a collection of Routes --> RouteSet
         int numRoutes = routes.size();
         String maxCostFormatted = String.format("$%,.2f", maxCost);  
 
@@ -322,6 +527,13 @@ public class Airline {
                 " with maximum cost " + maxCostFormatted + " and at most " + maxHop + " hops\n");
             }
         }
+
+        // The search stopped early: the paths found are only the first ones, so there are more than counted
+        if(limits.isTruncated()) {
+            String reason = limits.stopped() == SearchLimits.Stop.MAX_ROUTES ? "after " + String.format("%,d", numRoutes) + " paths"
+                            : "after " + INTERACTIVE_TIMEOUT_MILLIS / 1000 + " seconds";
+            System.out.println("(The search stopped " + reason + "; there are more paths. Lower the maximum cost or hops to see them all)\n");
+        }
         /******************************************************************************************************************/
         // Prompt user to select how they will view the resulting routes (by hops, cost, or distance)
         // Also give another option to return back to the main menu if they do not wish to see the routes
@@ -334,6 +546,7 @@ public class Airline {
             if(numRoutes == 1) {
                 System.out.print("How would you like to view this path? (Note: there is only one possible path)\n1) Ordered by hops (fewest to most)\n" + 
                 "2) Ordered by cost (cheapest to most expensive)\n3) Ordered by distance (shortest to longest overall)\n" +
+                "4) Best trade-offs only (no other path is as good in hops, cost and distance), cheapest first\n" +
                 "Note: Input any other number (int) to go back to the main menu\n\nChoice: ");
             }
 
@@ -341,55 +554,63 @@ public class Airline {
             else {
                 System.out.print("How would you like to view these paths?\n1) Ordered by hops (fewest to most)\n" + 
                              "2) Ordered by cost (cheapest to most expensive)\n3) Ordered by distance (shortest to longest overall)\n" +
+                             "4) Best trade-offs only (no other path is as good in hops, cost and distance), cheapest first\n" +
                              "Note: Input any other number (int) to go back to the main menu\n\nChoice: ");
             }
             
             try {
                 int choice = kbd.nextInt();
                 
-                // Order routes by hops via a HopComparator and display (fewest to most)
+                // Order routes by hops and display (fewest to most)
                 if(choice == 1) {
-                    HopComparator hopComp = new HopComparator();
-                    Collections.sort(routes, hopComp);
+                    routes = routes.sorted(RouteOrder.HOPS);
 
                     // Add output telling user they wanted to add a third city
                     if(addThirdCity)
-                        System.out.println("\n(Note that the routes below include the city of " + thirdCity + ")");
+                        System.out.println("\n(Note that the routes below include the " + (via.length > 1 ? "cities" : "city") + " of " + thirdCity + ")");
                     
                     System.out.println("Paths from " + source + " to " + destination + " sorted by hops (fewest to most):\n");
-                    for(int i = 0; i < routes.size(); i++)
-                        System.out.println(routes.get(i).toString());
+                    printRoutes(routes);
                 }
 
-                // Order routes by cost via a CostComparator and display (cheapest to most expensive)
+                // Order routes by cost and display (cheapest to most expensive)
                 else if(choice == 2) {
-                    CostComparator costComp = new CostComparator();
-                    Collections.sort(routes, costComp);
+                    routes = routes.sorted(RouteOrder.COST);
                     
                     // Add output telling user they wanted to add a third city
                     if(addThirdCity)
-                        System.out.println("\n(Note that the routes below include the city of " + thirdCity + ")");
+                        System.out.println("\n(Note that the routes below include the " + (via.length > 1 ? "cities" : "city") + " of " + thirdCity + ")");
 
                     System.out.println("Paths from " + source + " to " + destination + " sorted by cost (cheapest to most expensive):\n");
-                    for(int i = 0; i < routes.size(); i++)
-                        System.out.println(routes.get(i).toString());
+                    printRoutes(routes);
                 }
                 
-                // Order routes by distance via a DistanceComparator and display (shortest to longest)
+                // Order routes by distance and display (shortest to longest)
                 else if(choice == 3) {
-                    DistanceComparator distanceComp = new DistanceComparator();
-                    Collections.sort(routes, distanceComp);
+                    routes = routes.sorted(RouteOrder.DISTANCE);
                     
                     // Add output telling user they wanted to add a third city
                     if(addThirdCity)
-                        System.out.println("\n(Note that the routes below include the city of " + thirdCity + ")");
+                        System.out.println("\n(Note that the routes below include the " + (via.length > 1 ? "cities" : "city") + " of " + thirdCity + ")");
 
                     System.out.println("Paths from " + source + " to " + destination + " sorted by distance (shortest to longest overall):\n");
-                    for(int i = 0; i < routes.size(); i++)
-                        System.out.println(routes.get(i).toString());
+                    printRoutes(routes);
                 }
 
-                // If user enters a number (int) that is neither 1, 2, nor 3, then return to main menu
+                // Show only the Pareto-optimal routes, ordered by cost (the dominated routes are never searched)
+                else if(choice == 4) {
+                    ArrayList<Route> best = findParetoRoutes(sourceInt, destinationInt, via, maxCost, maxHop);
+
+                    // Add output telling user they wanted to add a third city
+                    if(addThirdCity)
+                        System.out.println("\n(Note that the routes below include the " + (via.length > 1 ? "cities" : "city") + " of " + thirdCity + ")");
+
+                    System.out.println("Best trade-offs from " + source + " to " + destination + " (" + best.size() + " of " + numRoutes + 
+                                       " paths) sorted by cost (cheapest to most expensive):\n");
+                    printRoutes(best);
+                }
+
+                // If user enters a number (int) that is not 1, 2, 3 or 4, then return to main menu
                 else {
                     System.out.println(); 
                     break;
@@ -400,71 +621,219 @@ public class Airline {
                 kbd = new Scanner(System.in);
             }
         }
-        addThirdCity = false;
     }
 
-    // Private helper method that recursively backtracks through cities/edges to find all routes that fulfill criteria 
-    private void dfs(boolean[] marked, ArrayList<Edge> edges, ArrayList<Route> routes, int source, int destination, 
-                     double currCost, double maxCost, int currHop, int maxHop, double distance, String thirdCity) {
-        // Immediately mark the source as being seen
-        marked[source] = true;
-
-        // Base Case: Current vertex (source) matches the destination
-        if(source == destination) {
-            Route newRoute = new Route(edges, currHop, currCost, distance, thirdCity);
+    // Return every route from source to destination through every city in via, with cost <= maxCost and
+    // hops <= maxHop, in search order (from the cache when an earlier search covers this budget), as a
+    // read-only RouteSet
+    public RouteSet findAllRoutes(int source, int destination, int[] via, double maxCost, int maxHop) {
+        return findAllRoutes(source, destination, via, maxCost, maxHop, null);
+    }
 
-            // Conditions to add route to collection
-            if((addThirdCity && newRoute.doesThirdCityExist()) || !addThirdCity)
-                routes.add(newRoute);
+    // Return the routes like findAllRoutes() above, stopping early as limits say (null for none): then only
+    // the routes found so far are returned (the first ones in search order) and nothing is cached
+    public RouteSet findAllRoutes(int source, int destination, int[] via, double maxCost, int maxHop,
+                                  SearchLimits limits) {
+        long generation = cache.generation();
+        FlightGraph graph = this.graph;
+        if(!feasible(graph, source, destination, via, maxCost, maxHop))
+            return new RouteSet(graph, source).subList(0, 0);
+        RouteSet found = cache.get(source, destination, via, maxCost, maxHop);
+        if(found != null) {
+            if(limits != null && found.size() > limits.maxRoutes()) {
+                found = found.subList(0, (int) limits.maxRoutes());
+                limits.stop(SearchLimits.Stop.MAX_ROUTES);
+            }
+            return found;
+        }
 
-            return;
+        // The routes go straight into a RouteSet (no Route objects until they are displayed)
+        if(bidirectional && via.length == 0 && maxHop >= BIDIRECTIONAL_MIN_HOPS) {
+            found = new RouteSet(graph, source);
+            BidirectionalRouteSearch search = new BidirectionalRouteSearch(graph);
+            search.setLimits(limits);
+            search.enumerate(source, destination, via, maxCost, maxHop, found);
+        }
+        else if(parallel)
+            found = new ParallelRouteSearch(graph).routes(source, destination, via, maxCost, maxHop, limits);
+        else {
+            found = new RouteSet(graph, source);
+            RouteEnumerator enumerator = new RouteEnumerator(graph);
+            enumerator.setLimits(limits);
+            enumerator.enumerate(source, destination, via, maxCost, maxHop, found);
         }
+        found = found.subList(0, found.size());
+        if(limits == null || !limits.isTruncated())
+            cache.put(generation, source, destination, via, maxCost, maxHop, found);
+        return found;
+    }
 
-        // Recursive Case: Verify if the route to be added fulfills criteria of cost and hops
+    // Answer a request without any interaction (safe to call from several threads at once): every route
+    // (or only the Pareto-optimal ones), sorted by the request's order if it has one, cut to its limit. With
+    // both an order and a limit only the best routes are searched for (findTopRoutes, or findBestRoutes when
+    // the request asks for the shortest engine). Throws IllegalArgumentException for unknown cities
+    public RouteResult query(RouteRequest request) {
+        return query(request, request.limits());
+    }
+
+    // Answer a request like query() above under the given limits (e.g. limits another thread may cancel)
+    public RouteResult query(RouteRequest request, SearchLimits limits) {
+        long start = System.nanoTime();
+        int source = resolve(request.getSource());
+        int destination = resolve(request.getDestination());
+        String[] names = request.getVia();
+        int[] via = new int[names.length];
+        for(int i = 0; i < names.length; i++)
+            via[i] = resolve(names[i]);
+
+        RouteOrder order = request.getOrder();
+        int limit = request.getLimit();
+        List<Route> found;
+        if(request.isPareto()) {
+            found = findParetoRoutes(source, destination, via, request.getMaxCost(), request.getMaxHop(), limits);
+            if(order != null)
+                Collections.sort(found, order);
+            if(limit > 0 && found.size() > limit)
+                found = found.subList(0, limit);
+        }
+        else if(request.isShortest())
+            found = findBestRoutes(source, destination, via, request.getMaxCost(), request.getMaxHop(), order, limit, limits);
+        else if(order != null && limit > 0)
+            found = findTopRoutes(source, destination, via, request.getMaxCost(), request.getMaxHop(), order, limit, limits);
         else {
-            // Check number of hops
-            if((currHop < maxHop)) {
-                // For each neighbor adjacent/reachable to source, recursively call dfs if it is unmarked
-                for(Edge w : adj(source)) {
-                    // Assign endpoint (int) to the neighbor of the source
-                    int endpoint1 = w.either();
-                    int endpoint2 = w.other(w.either());
-                    int endpoint;
-
-                    if(source == endpoint1)
-                        endpoint = endpoint2;
-                    else
-                        endpoint = endpoint1;
-                    
-                    // Check if this endpoint is unmarked: if unmarked, continue
-                    if(!marked[endpoint]) {
-                        double newCost = currCost + w.getCost();
-
-                        // Check if max cost has been reached if we add this next edge
-                        // If resulting cost is less than max cost, add edge and recursively call dfs with endpoint as source
-                        if(newCost <= maxCost) {
-                            currHop++;
-                            double newDistance = distance + w.getDistance();
-                            edges.add(w);
-                            
-                            dfs(marked, edges, routes, endpoint, destination, newCost, maxCost, currHop, maxHop, newDistance, thirdCity);
-                            
-                            // After dfs occurs, remove edge from collection, decrement currHop, unmark that endpoint
-                            marked[endpoint] = false;
-                            currHop--;
-                            if(edges.size() >= 1)
-                                edges.remove(edges.size() - 1);
-                        }
-                    }
-                }
-            }    
+            // Sorting and cutting a RouteSet only rearranges route numbers
+            RouteSet all = findAllRoutes(source, destination, via, request.getMaxCost(), request.getMaxHop(), limits);
+            if(order != null)
+                all = all.sorted(order);
+            if(limit > 0 && all.size() > limit)
+                all = all.subList(0, limit);
+            found = all;
         }
+        return new RouteResult(request, index, source, destination, found, System.nanoTime() - start, limits);
+    }
+
+    // Return the id of the named city, or throw IllegalArgumentException with spelling suggestions
+    private int resolve(String name) {
+        int v = index.indexOf(name);
+        if(v < 0) {
+            int[] suggestions = index.suggest(name, 5);
+            throw new IllegalArgumentException("Unknown city \"" + name + "\"" + 
+                (suggestions.length > 0 ? " (did you mean: " + index.names(suggestions) + "?)" : ""));
+        }
+        return v;
+    }
+
+    // Return the k best routes from source to destination under order, with cost <= maxCost and hops <= maxHop
+    // (every city in via must be on every route). Ties keep the order in which the search found them,
+    // so this is the first k routes of the full list sorted by order, found without enumerating the rest.
+    // For the single best route by cost or distance the network's ContractionHierarchy (when it has one)
+    // gives the best weight up front, so the search only explores routes that are as good
+    public ArrayList<Route> findTopRoutes(int source, int destination, int[] via, 
+                                          double maxCost, int maxHop, RouteOrder order, int k) {
+        return findTopRoutes(source, destination, via, maxCost, maxHop, order, k, null);
+    }
+
+    // Return the k best routes like findTopRoutes() above, stopping early as limits say (null for none): then
+    // they are the best of the routes found so far
+    public ArrayList<Route> findTopRoutes(int source, int destination, int[] via, 
+                                          double maxCost, int maxHop, RouteOrder order, int k, SearchLimits limits) {
+        FlightGraph graph = this.graph;
+        if(!feasible(graph, source, destination, via, maxCost, maxHop))
+            return new ArrayList<Route>();
+        // The hierarchy's route is one of the best, but among equally good routes the search decides which
+        // comes first, so it is only used to bound the search (or to tell that no route fits)
+        double bound = Double.POSITIVE_INFINITY;
+        if(k == 1 && via.length == 0) {
+            ArrayList<Route> best = hierarchyRoute(graph, source, destination, order, maxCost, maxHop);
+            if(best != null && best.isEmpty())
+                return best;
+            if(best != null)
+                bound = order.key(best.get(0));
+        }
+        TopRoutes top = new TopRoutes(order, k, bound);
+        RouteEnumerator enumerator = new RouteEnumerator(graph);
+        enumerator.setLimits(limits);
+        enumerator.enumerate(source, destination, via, maxCost, maxHop, top);
+
+        ArrayList<Route> best = new ArrayList<Route>(top.size());
+        for(int i = 0; i < top.size(); i++)
+            best.add(new Route(graph, source, top.arcs(i), top.hops(i), top.cost(i), top.distance(i)));
+        return best;
+    }
+
+    // Return the Pareto-optimal routes from source to destination through every city in via, with cost <= maxCost
+    // and hops <= maxHop: no other route is as good in cost, distance and hops and better in one of them. Ordered
+    // by cost, then distance, then hops; dominated routes are not enumerated (see ParetoRoutes)
+    public ArrayList<Route> findParetoRoutes(int source, int destination, int[] via, double maxCost, int maxHop) {
+        return findParetoRoutes(source, destination, via, maxCost, maxHop, null);
+    }
+
+    // Return the Pareto-optimal routes like findParetoRoutes() above, stopping early as limits say (null for none)
+    public ArrayList<Route> findParetoRoutes(int source, int destination, int[] via, double maxCost, int maxHop,
+                                             SearchLimits limits) {
+        FlightGraph graph = this.graph;
+        ArrayList<Route> best = new ArrayList<Route>();
+        if(!feasible(graph, source, destination, via, maxCost, maxHop))
+            return best;
+        ParetoRoutes pareto = new ParetoRoutes(graph);
+        pareto.setLimits(limits);
+        pareto.search(source, destination, via, maxCost, maxHop,
+            (path, hops, cost, distance) -> best.add(new Route(graph, source, path, hops, cost, distance)));
+        return best;
+    }
+
+    // Return up to k best routes like findTopRoutes(), but computed with ShortestRoutes (hop-constrained
+    // Bellman-Ford and Yen's algorithm), which never enumerates the routes that are not returned. Among
+    // equally good routes those with fewer hops come first, so ties may be ordered differently. Queries with
+    // required cities go to findTopRoutes(): ShortestRoutes only checks them on the routes it produces, so it
+    // could go through any number of routes that miss them
+    public ArrayList<Route> findBestRoutes(int source, int destination, int[] via, 
+                                           double maxCost, int maxHop, RouteOrder order, int k) {
+        return findBestRoutes(source, destination, via, maxCost, maxHop, order, k, null);
+    }
+
+    // Return the k best routes like findBestRoutes() above, stopping early as limits say (null for none): then
+    // they are the best routes accepted so far
+    public ArrayList<Route> findBestRoutes(int source, int destination, int[] via, 
+                                           double maxCost, int maxHop, RouteOrder order, int k, SearchLimits limits) {
+        if(via.length > 0)
+            return findTopRoutes(source, destination, via, maxCost, maxHop, order, k, limits);
+        FlightGraph graph = this.graph;
+        ArrayList<Route> best = new ArrayList<Route>();
+        if(!feasible(graph, source, destination, via, maxCost, maxHop))
+            return best;
+        if(k == 1) {
+            ArrayList<Route> found = hierarchyRoute(graph, source, destination, order, maxCost, maxHop);
+            if(found != null)
+                return found;
+        }
+        ShortestRoutes engine = new ShortestRoutes(graph);
+        engine.setLimits(limits);
+        for(ShortestRoutes.Path p : engine.kBest(source, destination, order, maxCost, maxHop, via, k))
+            best.add(new Route(graph, source, p.arcs(), p.hops(), p.cost(), p.distance()));
+        return best;
     }
 
     // Client Performance 
     public static void main(String [] args) throws IOException {
         // Create Airline object, Scanner kbd for user input (System.in)
         Airline newAirline = new Airline(args[0]);
+        String updates = null;
+        for(int i = 1; i < args.length; i++) {
+            if(args[i].equals("--parallel"))
+                newAirline.setParallel(true);
+            else if(args[i].equals("--bidirectional"))
+                newAirline.setBidirectional(true);
+            else if(args[i].equals("--bounds"))
+                newAirline.loadBounds(args[0] + ".bounds");
+            else if(args[i].equals("--hierarchies"))
+                newAirline.loadHierarchies(args[0] + ".ch");
+            else if(args[i].equals("--updates"))
+                updates = args[++i];
+        }
+        // Follow the delta file last, so the bound table and hierarchies are always those of the network file
+        if(updates != null)
+            new DeltaWatcher(newAirline, updates).start();
         Scanner kbd = new Scanner(System.in);
         boolean go = true;
         System.out.println("\nWelcome to Cal's Crazily Complex & Amazingly Awesome Airline!");
@@ -476,8 +845,15 @@ public class Airline {
                 int input = kbd.nextInt();
     
                 // Option 1: List the cities and direct routes served by the airline
-                if(input == 1)
-                    System.out.println("\n" + newAirline.getCities() + "\n" + newAirline.getDirectRoutes());
+                if(input == 1) {
+                    Writer out = console();
+                    out.write("\n");
+                    newAirline.printCities(out);
+                    out.write("\n");
+                    newAirline.printDirectRoutes(out);
+                    out.write("\n");
+                    out.flush();
+                }
                 
                 // Option 2: Find a route (source city, destination city, maximum cost, maximum # of hops), pass in same kbd Scanner
                 else if(input == 2)
@@ -498,30 +874,4 @@ public class Airline {
             }
         }
     }
-
-    // Comparator of Route objects based on number of HOPS
-    private class HopComparator implements Comparator<Route> {
-
-        public int compare(Route firstRoute, Route secondRoute) {
-            return firstRoute.getHops() - secondRoute.getHops();
-        }
-    }
-
-    // Comparator of Route objects based on COST
-    private class CostComparator implements Comparator<Route> {
-
-        public int compare(Route firstRoute, Route secondRoute) {
-            double diff = firstRoute.getCost() - secondRoute.getCost();
-            return (int) diff;
-        }
-    }
-
-    // Comparator of Route objects based on DISTANCE
-    private class DistanceComparator implements Comparator<Route> {
-
-        public int compare(Route firstRoute, Route secondRoute) {
-            double diff = firstRoute.getDistance() - secondRoute.getDistance();
-            return (int) diff;
-        }
-    }
 }
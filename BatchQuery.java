@@ -0,0 +1,149 @@
+/*
+ Non-interactive batch mode: answers a file of route requests, one JSON object per line
+ (see RouteRequest), and streams one JSON result line per request, in input order:
+   {"line":1,"source":"Berlin","destination":"Sydney","count":2,"routes":[
+     {"cost":1250,"distance":10823.5,"hops":2,"cities":["Berlin","London","Sydney"]}, ...]}
+   {"line":2,"error":"Unknown city \"Berln\" (did you mean: Berlin?)"}
+ Blank lines and lines starting with # are skipped (no output line).
+ Requests are answered by a fixed pool of workers sharing one read-only Airline (graph, city
+ index and route cache). At most a window of requests is in flight, so memory stays bounded
+ however long the file is, and a slow request only holds back the output, not the workers.
+ To RUN: java BatchQuery global.txt queries.jsonl [results.jsonl] [--threads N]
+ (results go to standard output if no file is given; a summary is printed to standard error)
+ Author: Caleb Tsai
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchQuery {
+    // Attributes of a batch run (shared airline, worker count, counters)
+    private final Airline airline;
+    private final int threads;
+    private long answered;
+    private long failed;
+
+    // Constructor: Answer requests against airline with the given number of worker threads
+    public BatchQuery(Airline airline, int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("Number of threads must be positive");
+        this.airline = airline;
+        this.threads = threads;
+    }
+
+    // Answer every request read from in, writing one result line per request to out in input order
+    public void run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        int window = 8 * threads;
+        try {
+            int lineNumber = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String text = line.trim();
+                if (text.isEmpty() || text.startsWith("#"))
+                    continue;
+
+                // Wait for the oldest request before reading further once the window is full
+                if (pending.size() == window)
+                    write(pending.poll(), out);
+                final int number = lineNumber;
+                pending.add(workers.submit(() -> answer(number, text)));
+            }
+            while (!pending.isEmpty())
+                write(pending.poll(), out);
+            out.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Write the result line of a finished (or soon finished) request
+    private void write(Future<String> result, Writer out) throws IOException, InterruptedException {
+        try {
+            out.write(result.get());
+            out.write('\n');
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch worker failed", e.getCause());
+        }
+    }
+
+    // Return the result line of the request on line number (an invalid request or an internal failure
+    // becomes an error line)
+    private String answer(int number, String text) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"line\":").append(number);
+        try {
+            RouteRequest request = RouteRequest.fromJson(Json.parse(text));
+            airline.query(request).appendJson(json.append(',')).append('}');
+            count(true);
+        } catch (IllegalArgumentException e) {
+            return error(number, e.getMessage());
+        } catch (RuntimeException | OutOfMemoryError e) {
+            // A request that breaks the search (or runs out of memory) fails alone, not the whole batch
+            return error(number, "Internal error: " + e);
+        }
+        return json.toString();
+    }
+
+    // Return the error line of the request on line number
+    private String error(int number, String message) {
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"line\":").append(number).append(",\"error\":");
+        Json.quote(json, message).append('}');
+        count(false);
+        return json.toString();
+    }
+
+    // Count one answered or failed request
+    private synchronized void count(boolean ok) {
+        if (ok)
+            answered++;
+        else
+            failed++;
+    }
+
+    // Return the number of requests answered
+    public synchronized long answered()     {return answered;}
+
+    // Return the number of requests rejected with an error line
+    public synchronized long failed()   {return failed;}
+
+    // Batch client
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--threads"))
+                threads = Integer.parseInt(args[++i]);
+            else
+                output = args[i];
+        }
+
+        Airline airline = new Airline(args[0]);
+        BatchQuery batch = new BatchQuery(airline, threads);
+        long start = System.nanoTime();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8);
+             Writer out = output == null
+                          ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                          : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            batch.run(in, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d requests answered, %d rejected in %.2f s (%.0f requests/s) on %d threads%n",
+                          batch.answered(), batch.failed(), seconds, (batch.answered() + batch.failed()) / seconds, threads);
+        System.err.println(airline.getCache());
+    }
+}
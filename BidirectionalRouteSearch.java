@@ -0,0 +1,315 @@
+/*
+ Meet-in-the-middle enumeration of every simple route between two cities within a maximum cost
+ and a maximum number of hops, for deep searches where the forward-only depth-first search of
+ RouteEnumerator grows as b^maxHop (b the branching factor).
+ Every route of h hops is split at its middle city m into a forward half of ceil(h/2) hops from
+ the source and a backward half of floor(h/2) hops from the destination, so each route has
+ exactly one split. The search
+   1. expands every backward half from the destination (up to maxHop/2 hops) and indexes them by
+      meeting city and hops, cheapest first
+   2. expands every forward half from the source (up to ceil(maxHop/2) hops) and, at each city
+      reached, joins it with the backward halves indexed there that fit the remaining cost and
+      share no city with it (the route stays simple)
+ which explores about 2 * b^(maxHop/2) partial routes instead of b^maxHop. Both halves are
+ pruned with the DestinationBounds of the city they head for.
+ Routes are visited in the same order as RouteEnumerator (the depth-first order is the
+ lexicographic order of the arc numbers, so the joined routes are sorted into it) with the same
+ cost and distance sums, so the two searches are interchangeable. The price is memory: every
+ backward half and every route found is held until the search ends.
+ Searches through required cities, from a city to itself or on networks with negative weights
+ are handed to RouteEnumerator. With SearchLimits set, a search stopped early visits the routes
+ joined so far (in the same order, but not necessarily the first ones in it).
+ To RUN: java BidirectionalRouteSearch global.txt Berlin Sydney maxCost maxHop
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class BidirectionalRouteSearch {
+    // Attributes of the engine (graph, whether every weight is nonnegative, marks shared by both halves)
+    private final FlightGraph graph;
+    private final boolean nonnegative;
+    private final boolean[] marked;
+    private SearchLimits limits;
+
+    // Attributes of one search (query, bounds towards either end, stack of the half being expanded)
+    private int source;
+    private int destination;
+    private double maxCost;
+    private double costLimit;
+    private int maxHop;
+    private int forwardHops;
+    private int backwardHops;
+    private DestinationBounds toSource;
+    private DestinationBounds toDestination;
+    private int[] path;
+    private int steps;
+    private boolean stopped;
+
+    // Backward halves (arcs from the destination outward, stride backwardHops), then the index over them:
+    // the halves meeting at city m with b hops are order[first[m * (backwardHops + 1) + b] ..) by cost
+    private int halves;
+    private int[] halfArcs = new int[0];
+    private int[] halfCity = new int[64];
+    private int[] halfHops = new int[64];
+    private double[] halfCost = new double[64];
+    private double[] halfDistance = new double[64];
+    private int[] first;
+    private int[] order;
+
+    // Routes found (arcs with stride maxHop)
+    private int routes;
+    private int[] routeArcs = new int[0];
+    private int[] routeHops = new int[64];
+    private double[] routeCost = new double[64];
+    private double[] routeDistance = new double[64];
+
+    // Constructor: Create an engine over graph (reusable, but not by several threads at once)
+    public BidirectionalRouteSearch(FlightGraph graph) {
+        this.graph = graph;
+        this.marked = new boolean[graph.V()];
+        boolean ok = true;
+        for (int a = 0; a < graph.E() && ok; a++)
+            ok = graph.cost(a) >= 0 && graph.distance(a) >= 0;
+        this.nonnegative = ok;
+    }
+
+    // Apply limits to the following searches (null for none)
+    public void setLimits(SearchLimits limits)  {this.limits = limits;}
+
+    // Visit every simple route from source to destination through every city in via (an empty array for
+    // none) with cost <= maxCost and hops <= maxHop, in RouteEnumerator's order
+    public void enumerate(int source, int destination, int[] via, double maxCost, int maxHop, RouteEnumerator.Visitor visitor) {
+        if (via.length > 0 || !nonnegative || source == destination) {
+            RouteEnumerator enumerator = new RouteEnumerator(graph);
+            enumerator.setLimits(limits);
+            enumerator.enumerate(source, destination, via, maxCost, maxHop, visitor);
+            return;
+        }
+
+        // A simple route never has more hops than there are other cities
+        maxHop = Math.min(maxHop, graph.V() - 1);
+        toDestination = DestinationBounds.towards(graph, destination, false);
+        if (maxHop <= 0 || !toDestination.canFinish(source, 0.0, 0, maxCost, maxHop))
+            return;
+        toSource = DestinationBounds.towards(graph, source, false);
+
+        this.source = source;
+        this.destination = destination;
+        this.maxCost = maxCost;
+        this.costLimit = DestinationBounds.withSlack(maxCost);
+        this.maxHop = maxHop;
+        this.forwardHops = (maxHop + 1) / 2;
+        this.backwardHops = maxHop / 2;
+        this.path = new int[maxHop];
+        this.steps = 0;
+        this.stopped = limits != null && limits.check(0);
+        halves = 0;
+        routes = 0;
+        if (halfArcs.length < 64 * backwardHops)
+            halfArcs = new int[64 * backwardHops];
+        if (routeArcs.length < 64 * maxHop)
+            routeArcs = new int[64 * maxHop];
+
+        marked[destination] = true;
+        backward(destination, 0, 0.0, 0.0);
+        marked[destination] = false;
+        index();
+        marked[source] = true;
+        forward(source, 0, 0.0);
+        marked[source] = false;
+        if (limits != null)
+            limits.check(steps);
+
+        // Sort the routes into depth-first order and visit them
+        Integer[] sorted = new Integer[routes];
+        for (int i = 0; i < routes; i++)
+            sorted[i] = i;
+        Arrays.sort(sorted, this::compareRoutes);
+        int[] arcs = new int[maxHop];
+        for (int r : sorted) {
+            System.arraycopy(routeArcs, r * maxHop, arcs, 0, routeHops[r]);
+            visitor.visit(arcs, routeHops[r], routeCost[r], routeDistance[r]);
+        }
+    }
+
+    // Count one step and every so often check the clock and the cancellation token; return true to stop
+    private boolean step() {
+        if (stopped)
+            return true;
+        if (limits != null && ++steps == SearchLimits.CHECK_INTERVAL) {
+            steps = 0;
+            stopped = limits.check(SearchLimits.CHECK_INTERVAL);
+        }
+        return stopped;
+    }
+
+    // Record the backward half ending at v (the first hops arcs of path, from the destination outward),
+    // then extend it while another hop is allowed
+    private void backward(int v, int hops, double cost, double distance) {
+        if (toSource.hops(v) <= hops + 1)
+            addHalf(v, hops, cost, distance);
+        if (hops == backwardHops)
+            return;
+        for (int a = graph.begin(v); a < graph.end(v) && !step(); a++) {
+            int w = graph.target(a);
+            if (marked[w] || w == source || hops + 1 + toSource.hops(w) > maxHop)
+                continue;
+            double newCost = cost + graph.cost(a);
+            if (newCost > maxCost || newCost + toSource.cost(w) > costLimit)
+                continue;
+            path[hops] = a;
+            marked[w] = true;
+            backward(w, hops + 1, newCost, distance + graph.distance(a));
+            marked[w] = false;
+        }
+    }
+
+    // Extend the forward half ending at v (the first hops arcs of path) by one arc, joining each extension
+    // with the backward halves that meet it, and go deeper while another forward hop is allowed
+    private void forward(int v, int hops, double cost) {
+        for (int a = graph.begin(v); a < graph.end(v) && !step(); a++) {
+            int w = graph.target(a);
+            if (marked[w] || hops + 1 + toDestination.hops(w) > maxHop)
+                continue;
+            double newCost = cost + graph.cost(a);
+            if (newCost > maxCost || newCost + toDestination.cost(w) > costLimit)
+                continue;
+            path[hops] = a;
+            join(w, hops + 1, newCost);
+
+            // The destination ends every route, so a forward half never passes through it
+            if (w != destination && hops + 1 < forwardHops) {
+                marked[w] = true;
+                forward(w, hops + 1, newCost);
+                marked[w] = false;
+            }
+        }
+    }
+
+    // Join the forward half ending at m (the first hops arcs of path, cities marked) with every backward
+    // half of hops - 1 or hops arcs that meets it there, fits the cost and shares no other city with it
+    private void join(int m, int hops, double cost) {
+        for (int b = hops - 1; b <= hops && b <= backwardHops; b++) {
+            int key = m * (backwardHops + 1) + b;
+            for (int i = first[key]; i < first[key + 1] && !step(); i++) {
+                int h = order[i];
+                if (cost + halfCost[h] > costLimit)
+                    break;
+                boolean simple = true;
+                for (int j = 0; j < b - 1 && simple; j++)
+                    simple = !marked[graph.target(halfArcs[h * backwardHops + j])];
+                if (simple)
+                    addRoute(hops, h, b);
+            }
+        }
+    }
+
+    // Store the backward half ending at v after hops arcs (the first hops arcs of path)
+    private void addHalf(int v, int hops, double cost, double distance) {
+        if (halves == halfCity.length) {
+            int n = 2 * halves;
+            halfCity = Arrays.copyOf(halfCity, n);
+            halfHops = Arrays.copyOf(halfHops, n);
+            halfCost = Arrays.copyOf(halfCost, n);
+            halfDistance = Arrays.copyOf(halfDistance, n);
+        }
+        if ((halves + 1) * backwardHops > halfArcs.length)
+            halfArcs = Arrays.copyOf(halfArcs, 2 * halfArcs.length);
+        System.arraycopy(path, 0, halfArcs, halves * backwardHops, hops);
+        halfCity[halves] = v;
+        halfHops[halves] = hops;
+        halfCost[halves] = cost;
+        halfDistance[halves] = distance;
+        halves++;
+    }
+
+    // Index the backward halves by meeting city and hops (counting sort), cheapest first within each group
+    private void index() {
+        int keys = graph.V() * (backwardHops + 1);
+        first = new int[keys + 1];
+        for (int h = 0; h < halves; h++)
+            first[halfCity[h] * (backwardHops + 1) + halfHops[h] + 1]++;
+        for (int k = 0; k < keys; k++)
+            first[k + 1] += first[k];
+        int[] next = Arrays.copyOf(first, keys);
+        Integer[] byCost = new Integer[halves];
+        for (int h = 0; h < halves; h++)
+            byCost[next[halfCity[h] * (backwardHops + 1) + halfHops[h]]++] = h;
+        for (int k = 0; k < keys; k++)
+            if (first[k + 1] - first[k] > 1)
+                Arrays.sort(byCost, first[k], first[k + 1], (x, y) -> Double.compare(halfCost[x], halfCost[y]));
+        order = new int[halves];
+        for (int i = 0; i < halves; i++)
+            order[i] = byCost[i];
+    }
+
+    // Store the route made of the forward half (the first forwardHops arcs of path) and backward half h
+    // of b arcs run in reverse; cost and distance are summed from the source, as RouteEnumerator does
+    private void addRoute(int forwardHops, int h, int b) {
+        int hops = forwardHops + b;
+        if (limits != null && routes == limits.maxRoutes()) {
+            limits.stop(SearchLimits.Stop.MAX_ROUTES);
+            stopped = true;
+            return;
+        }
+        if (routes == routeHops.length) {
+            int n = 2 * routes;
+            routeHops = Arrays.copyOf(routeHops, n);
+            routeCost = Arrays.copyOf(routeCost, n);
+            routeDistance = Arrays.copyOf(routeDistance, n);
+        }
+        if ((routes + 1) * maxHop > routeArcs.length)
+            routeArcs = Arrays.copyOf(routeArcs, 2 * routeArcs.length);
+
+        int at = routes * maxHop;
+        System.arraycopy(path, 0, routeArcs, at, forwardHops);
+        for (int j = 0; j < b; j++)
+            routeArcs[at + forwardHops + j] = graph.twin(halfArcs[h * backwardHops + b - 1 - j]);
+        double cost = 0.0;
+        double distance = 0.0;
+        for (int j = 0; j < hops; j++) {
+            cost += graph.cost(routeArcs[at + j]);
+            distance += graph.distance(routeArcs[at + j]);
+        }
+        if (cost > maxCost)
+            return;
+        routeHops[routes] = hops;
+        routeCost[routes] = cost;
+        routeDistance[routes] = distance;
+        routes++;
+    }
+
+    // Compare two routes found by their arc numbers (the order the depth-first search finds them in)
+    private int compareRoutes(int x, int y) {
+        int n = Math.min(routeHops[x], routeHops[y]);
+        for (int j = 0; j < n; j++) {
+            int a = routeArcs[x * maxHop + j];
+            int b = routeArcs[y * maxHop + j];
+            if (a != b)
+                return Integer.compare(a, b);
+        }
+        return Integer.compare(routeHops[x], routeHops[y]);
+    }
+
+    // Test client: compare the search with RouteEnumerator between two cities
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = GraphSnapshot.isSnapshot(args[0]) ? GraphSnapshot.read(args[0]) : RouteFileReader.read(args[0]);
+        CityIndex index = new CityIndex(graph);
+        int source = index.indexOf(args[1]);
+        int destination = index.indexOf(args[2]);
+        double maxCost = Double.parseDouble(args[3]);
+        int maxHop = Integer.parseInt(args[4]);
+
+        long[] found = new long[2];
+        long start = System.nanoTime();
+        new RouteEnumerator(graph).enumerate(source, destination, maxCost, maxHop, (path, h, c, d) -> found[0]++);
+        long middle = System.nanoTime();
+        new BidirectionalRouteSearch(graph).enumerate(source, destination, new int[0], maxCost, maxHop, (path, h, c, d) -> found[1]++);
+        long end = System.nanoTime();
+
+        System.out.printf("RouteEnumerator:          %,d routes in %.2f ms%n", found[0], (middle - start) / 1e6);
+        System.out.printf("BidirectionalRouteSearch: %,d routes in %.2f ms%n", found[1], (end - middle) / 1e6);
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ Optional all-pairs table of the cheapest cost, shortest distance and fewest hops between every
+ two cities of one network, computed once (one Dijkstra/BFS per city, in parallel) instead of
+ once per query.
+   - feasible() answers in O(1) (O(via) with required cities) whether any route can fit a budget,
+     so a hopeless query is turned down without searching
+   - towards() hands the search its DestinationBounds by copying one row, without a Dijkstra
+ Entries are stored as floats (rounded down, so they stay lower bounds) and hop counts as shorts:
+ 10 bytes per pair of cities, i.e. 40 MB for 2,000 cities. A table is registered with the network
+ it was built for, and DestinationBounds.towards() uses it for every search on that network. A
+ changed network (see Airline.update()) keeps it: fares that went up and routes taken away leave
+ every bound valid, and a new or cheaper route is patched in with addRoute() in O(V^2).
+ Tables can be saved next to the network file and read back, checked against a fingerprint of
+ the network they were built for:
+   To CREATE: java BoundTable global.txt global.txt.bounds
+ Layout (little-endian):
+   int magic, int version, int V, long fingerprint of the network
+   float cost[V * V], float distance[V * V], short hops[V * V] (row t holds the bounds towards t)
+   long CRC32 of every preceding byte
+ The sections are written and read through one small buffer, so files may be larger than 2 GB;
+ a table holds at most MAX_CITIES cities (V * V entries must fit in one array).
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+public class BoundTable {
+    public static final int MAGIC = 0x444E4241;     // "ABND" when read as little-endian bytes
+    public static final int VERSION = 1;
+    public static final int MAX_CITIES = 46_340;    // the largest V with V * V below Integer.MAX_VALUE - 8
+    private static final int HEADER_BYTES = 20;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final short NO_PATH = Short.MAX_VALUE;
+
+    // The table registered with each network (weak keys: a network that is no longer used lets go of its table)
+    private static final Map<FlightGraph, BoundTable> tables = Collections.synchronizedMap(new WeakHashMap<FlightGraph, BoundTable>());
+
+    // Attributes of a table (row-major, row t holds the bounds from every city towards t)
+    private final int V;
+    private final long fingerprint;
+    private final float[] cost;
+    private final float[] distance;
+    private final short[] hops;
+
+    // Constructor: Wrap the matrices of a network with the given fingerprint
+    private BoundTable(int V, long fingerprint, float[] cost, float[] distance, short[] hops) {
+        this.V = V;
+        this.fingerprint = fingerprint;
+        this.cost = cost;
+        this.distance = distance;
+        this.hops = hops;
+    }
+
+    // Return the table of graph, computed on all cores, and register it with graph
+    public static BoundTable build(FlightGraph graph) {
+        return compute(graph).attach(graph);
+    }
+
+    // Throw IllegalArgumentException if graph has too many cities for a table
+    private static void checkSize(FlightGraph graph) {
+        if (graph.V() > MAX_CITIES)
+            throw new IllegalArgumentException(graph.V() + " cities are too many for an all-pairs table (at most "
+                                               + MAX_CITIES + ")");
+    }
+
+    // Return the table of graph, computed on all cores (not registered)
+    private static BoundTable compute(FlightGraph graph) {
+        checkSize(graph);
+        int V = graph.V();
+        float[] cost = new float[V * V];
+        float[] distance = new float[V * V];
+        short[] hops = new short[V * V];
+
+        // Every route runs both ways, so the bounds towards t are also the bounds from t
+        IntStream.range(0, V).parallel().forEach(t -> {
+            DestinationBounds bounds = new DestinationBounds(graph, t, true);
+            int row = t * V;
+            for (int v = 0; v < V; v++) {
+                cost[row + v] = lower(bounds.cost(v));
+                distance[row + v] = lower(bounds.distance(v));
+                int h = bounds.hops(v);
+                hops[row + v] = h >= DestinationBounds.UNREACHABLE ? NO_PATH : (short) Math.min(h, NO_PATH - 1);
+            }
+        });
+        return new BoundTable(V, fingerprint(graph), cost, distance, hops);
+    }
+
+    // Return x as the largest float that is not above it
+    private static float lower(double x) {
+        float f = (float) x;
+        return f > x ? Math.nextDown(f) : f;
+    }
+
+    // Return the table registered with graph, or null if it has none
+    public static BoundTable of(FlightGraph graph)  {return tables.get(graph);}
+
+    // Register this table with graph (which must have the same cities and no cheaper or shorter connections
+    // than the network the table was built for); return this table
+    public BoundTable attach(FlightGraph graph) {
+        if (graph.V() != V)
+            throw new IllegalArgumentException("The table is for " + V + " cities, the network has " + graph.V());
+        tables.put(graph, this);
+        return this;
+    }
+
+    // Lower the bounds in place for a new or cheaper route between v and w: a route between x and y may now
+    // take it, for bound(x, v) + it + bound(w, y) or bound(x, w) + it + bound(v, y). Bounds only go down,
+    // so every one stays a lower bound of the network the table was built for and queries on it may go on
+    // meanwhile; attach the table to the new network once this returns. Return false (changing nothing) if
+    // the route's cost or distance is negative, which the bounds cannot take in
+    public boolean addRoute(int v, int w, double routeCost, double routeDistance) {
+        if (routeCost < 0 || routeDistance < 0)
+            return false;
+
+        // Rows v and w are the bounds from every city to v and to w (and from v and w, as routes run both ways)
+        int rowV = v * V;
+        int rowW = w * V;
+        float[] costV = Arrays.copyOfRange(cost, rowV, rowV + V);
+        float[] costW = Arrays.copyOfRange(cost, rowW, rowW + V);
+        float[] distanceV = Arrays.copyOfRange(distance, rowV, rowV + V);
+        float[] distanceW = Arrays.copyOfRange(distance, rowW, rowW + V);
+        short[] hopsV = Arrays.copyOfRange(hops, rowV, rowV + V);
+        short[] hopsW = Arrays.copyOfRange(hops, rowW, rowW + V);
+
+        IntStream.range(0, V).parallel().forEach(y -> {
+            int row = y * V;
+            for (int x = 0; x < V; x++) {
+                // Through v then w, and through w then v (only between cities that reach the route)
+                if (hopsV[x] != NO_PATH && hopsW[y] != NO_PATH)
+                    lowerTo(row + x, costV[x] + routeCost + costW[y], distanceV[x] + routeDistance + distanceW[y],
+                            hopsV[x] + 1 + hopsW[y]);
+                if (hopsW[x] != NO_PATH && hopsV[y] != NO_PATH)
+                    lowerTo(row + x, costW[x] + routeCost + costV[y], distanceW[x] + routeDistance + distanceV[y],
+                            hopsW[x] + 1 + hopsV[y]);
+            }
+        });
+        return true;
+    }
+
+    // Lower entry i to the given bounds where they are smaller (then one float step further down, as the sums
+    // are taken in another order than a Dijkstra would take them)
+    private void lowerTo(int i, double c, double d, int h) {
+        if (lower(c) < cost[i])
+            cost[i] = Math.nextDown(lower(c));
+        if (lower(d) < distance[i])
+            distance[i] = Math.nextDown(lower(d));
+        hops[i] = (short) Math.min(hops[i], Math.min(h, NO_PATH - 1));
+    }
+
+    // Return the number of cities
+    public int V()  {return V;}
+
+    // Return the cheapest possible cost between v and w (+infinity if there is no route)
+    public double cost(int v, int w)    {return cost[w * V + v];}
+
+    // Return the shortest possible distance between v and w (+infinity if there is no route)
+    public double distance(int v, int w)    {return distance[w * V + v];}
+
+    // Return the fewest possible hops between v and w (DestinationBounds.UNREACHABLE if there is no route)
+    public int hops(int v, int w) {
+        short h = hops[w * V + v];
+        return h == NO_PATH ? DestinationBounds.UNREACHABLE : h;
+    }
+
+    // Return false if no route from source to destination through every city in via can have cost <= maxCost
+    // and hops <= maxHop (true means one might)
+    public boolean feasible(int source, int destination, int[] via, double maxCost, int maxHop) {
+        double limit = DestinationBounds.withSlack(maxCost);
+        if (cost(source, destination) > limit || hops(source, destination) > maxHop)
+            return false;
+        for (int c : via)
+            if (cost(source, c) + cost(c, destination) > limit || hops(source, c) + hops(c, destination) > maxHop)
+                return false;
+        return true;
+    }
+
+    // Return the bounds towards destination (distance bounds included), read from the table
+    public DestinationBounds towards(int destination) {
+        double[] costTo = new double[V];
+        double[] distanceTo = new double[V];
+        int[] hopsTo = new int[V];
+        int row = destination * V;
+        for (int v = 0; v < V; v++) {
+            costTo[v] = cost[row + v];
+            distanceTo[v] = distance[row + v];
+            hopsTo[v] = hops[row + v] == NO_PATH ? DestinationBounds.UNREACHABLE : hops[row + v];
+        }
+        return new DestinationBounds(destination, costTo, hopsTo, distanceTo);
+    }
+
+    // Return a checksum of graph's cities and arcs, to tell whether a saved table belongs to it
+    public static long fingerprint(FlightGraph graph) {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12).order(ByteOrder.LITTLE_ENDIAN);
+        for (int v = 0; v < graph.V(); v++) {
+            crc.update(graph.city(v).getBytes(StandardCharsets.UTF_8));
+            for (int a = graph.begin(v); a <= graph.end(v); a++) {
+                if (buffer.remaining() < 20) {
+                    crc.update(buffer.flip());
+                    buffer.clear();
+                }
+                if (a == graph.end(v))
+                    buffer.putInt(a);
+                else
+                    buffer.putInt(graph.target(a)).putDouble(graph.cost(a)).putDouble(graph.distance(a));
+            }
+        }
+        crc.update(buffer.flip());
+        return crc.getValue() ^ ((long) graph.V() << 32) ^ ((long) graph.E() << 48);
+    }
+
+    // Write the table to file
+    public void write(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(V).putLong(fingerprint);
+            put(channel, out, crc, cost);
+            put(channel, out, crc, distance);
+            put(channel, out, crc, hops);
+            flush(channel, out, crc);
+            out.putLong(crc.getValue());
+            flush(channel, out, null);
+            channel.force(false);
+        }
+    }
+
+    // Write values through out (flushing it to channel whenever it is full)
+    private static void put(FileChannel channel, ByteBuffer out, CRC32 crc, float[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (out.remaining() < Float.BYTES)
+                flush(channel, out, crc);
+            int n = Math.min(values.length - i, out.remaining() / Float.BYTES);
+            out.asFloatBuffer().put(values, i, n);
+            out.position(out.position() + n * Float.BYTES);
+            i += n;
+        }
+    }
+
+    // Write values through out (flushing it to channel whenever it is full)
+    private static void put(FileChannel channel, ByteBuffer out, CRC32 crc, short[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (out.remaining() < Short.BYTES)
+                flush(channel, out, crc);
+            int n = Math.min(values.length - i, out.remaining() / Short.BYTES);
+            out.asShortBuffer().put(values, i, n);
+            out.position(out.position() + n * Short.BYTES);
+            i += n;
+        }
+    }
+
+    // Write the bytes in out to channel, adding them to crc (unless null), and empty out
+    private static void flush(FileChannel channel, ByteBuffer out, CRC32 crc) throws IOException {
+        out.flip();
+        if (crc != null)
+            crc.update(out.duplicate());
+        while (out.hasRemaining())
+            channel.write(out);
+        out.clear();
+    }
+
+    // Read the table saved in file for graph and register it; throws IOException if the file is corrupt
+    // or was saved for a different network
+    public static BoundTable read(FlightGraph graph, String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8)
+                throw new IOException(file + ": not a bound table (unexpected size " + size + ")");
+
+            // Everything but the trailing checksum goes through in (and into crc)
+            long end = size - 8;
+            CRC32 crc = new CRC32();
+            ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            in.limit(0);
+            refill(channel, in, crc, end, file);
+            if (in.getInt() != MAGIC)
+                throw new IOException(file + ": not a bound table (bad magic number)");
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException(file + ": unsupported bound table version " + version + " (expected " + VERSION + ")");
+            int V = in.getInt();
+            long fingerprint = in.getLong();
+            if (V != graph.V() || fingerprint != fingerprint(graph))
+                throw new IOException(file + ": bound table was built for a different network");
+            if (V > MAX_CITIES || size != HEADER_BYTES + 10L * V * V + 8)
+                throw new IOException(file + ": corrupt bound table (size " + size + " does not match the header)");
+
+            float[] cost = new float[V * V];
+            float[] distance = new float[V * V];
+            short[] hops = new short[V * V];
+            get(channel, in, crc, end, file, cost);
+            get(channel, in, crc, end, file, distance);
+            get(channel, in, crc, end, file, hops);
+
+            ByteBuffer checksum = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            while (checksum.hasRemaining())
+                if (channel.read(checksum, end + checksum.position()) < 0)
+                    throw new IOException(file + ": bound table is truncated");
+            if (checksum.getLong(0) != crc.getValue())
+                throw new IOException(file + ": bound table checksum mismatch (file is corrupt or truncated)");
+            return new BoundTable(V, fingerprint, cost, distance, hops).attach(graph);
+        }
+    }
+
+    // Read values through in (refilling it from channel whenever it runs out)
+    private static void get(FileChannel channel, ByteBuffer in, CRC32 crc, long end, String file, float[] values)
+            throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (in.remaining() < Float.BYTES)
+                refill(channel, in, crc, end, file);
+            int n = Math.min(values.length - i, in.remaining() / Float.BYTES);
+            in.asFloatBuffer().get(values, i, n);
+            in.position(in.position() + n * Float.BYTES);
+            i += n;
+        }
+    }
+
+    // Read values through in (refilling it from channel whenever it runs out)
+    private static void get(FileChannel channel, ByteBuffer in, CRC32 crc, long end, String file, short[] values)
+            throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (in.remaining() < Short.BYTES)
+                refill(channel, in, crc, end, file);
+            int n = Math.min(values.length - i, in.remaining() / Short.BYTES);
+            in.asShortBuffer().get(values, i, n);
+            in.position(in.position() + n * Short.BYTES);
+            i += n;
+        }
+    }
+
+    // Keep the unread bytes of in and read more of channel after them (never past end), adding the bytes
+    // read to crc; throws IOException if nothing is left before end
+    private static void refill(FileChannel channel, ByteBuffer in, CRC32 crc, long end, String file) throws IOException {
+        in.compact();
+        int start = in.position();
+        long left = end - channel.position();
+        if (left <= 0)
+            throw new IOException(file + ": corrupt bound table (sections do not match the header)");
+        if (left < in.remaining())
+            in.limit(start + (int) left);
+        while (in.hasRemaining())
+            if (channel.read(in) < 0)
+                throw new IOException(file + ": bound table is truncated");
+        ByteBuffer read = in.duplicate();
+        read.flip().position(start);
+        crc.update(read);
+        in.flip();
+    }
+
+    // Return the table of graph from file if it holds one for this network, otherwise build it and save it to
+    // file; the table is registered once it is saved. Throws IllegalArgumentException, before any work, if the
+    // network has too many cities for a table
+    public static BoundTable load(FlightGraph graph, String file) throws IOException {
+        checkSize(graph);
+        if (Files.exists(Paths.get(file))) {
+            try {
+                return read(graph, file);
+            } catch (IOException e) {
+                System.err.println(e.getMessage() + "; rebuilding it");
+            }
+        }
+        BoundTable table = compute(graph);
+        table.write(file);
+        return table.attach(graph);
+    }
+
+    // Client: build a network's table and save it (java BoundTable routes.txt routes.txt.bounds)
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = GraphSnapshot.isSnapshot(args[0]) ? GraphSnapshot.read(args[0]) : RouteFileReader.read(args[0]);
+        long start = System.nanoTime();
+        BoundTable table = compute(graph);
+        long built = System.nanoTime();
+        table.write(args[1]);
+        long written = System.nanoTime();
+        table = null;   // let go of it before reading the copy back (two tables may not fit in memory)
+        read(graph, args[1]);
+        long loaded = System.nanoTime();
+
+        System.out.printf("%s -> %s: %d cities, %,d pairs, %,d bytes%n", args[0], args[1], graph.V(),
+                          (long) graph.V() * graph.V(), Files.size(Paths.get(args[1])));
+        System.out.printf("build %.1f ms, write %.1f ms, load %.1f ms%n",
+                          (built - start) / 1e6, (written - built) / 1e6, (loaded - written) / 1e6);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ Name lookup for the cities of a FlightGraph, built once when the network is loaded.
+   indexOf()    - case-insensitive exact match through a hash map, O(1)
+   withPrefix() - cities whose name starts with a prefix, by binary search over the sorted names
+   suggest()    - the closest names to a misspelled one: prefix matches first, then the names
+                  within a small edit (Levenshtein) distance, nearest first
+ When two cities only differ by capitalization the first one in the file wins, as with the
+ old linear scan.
+ To RUN: java CityIndex global.txt Philadel
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+public class CityIndex {
+    // Attributes of the index (display names, lowercase name -> id, lowercase names sorted with their ids)
+    private final String[] names;
+    private final HashMap<String, Integer> ids;
+    private final String[] sortedKeys;
+    private final int[] sortedIds;
+
+    // Constructor: Index the cities of graph
+    public CityIndex(FlightGraph graph) {
+        int V = graph.V();
+        this.names = new String[V];
+        this.ids = new HashMap<String, Integer>(2 * V);
+        Integer[] order = new Integer[V];
+        String[] keys = new String[V];
+        for (int v = 0; v < V; v++) {
+            names[v] = graph.city(v);
+            keys[v] = key(names[v]);
+            ids.putIfAbsent(keys[v], v);
+            order[v] = v;
+        }
+
+        // Sort by lowercase name, then by id so the prefix listing is stable
+        Arrays.sort(order, (x, y) -> {
+            int c = keys[x].compareTo(keys[y]);
+            return c != 0 ? c : Integer.compare(x, y);
+        });
+        this.sortedKeys = new String[V];
+        this.sortedIds = new int[V];
+        for (int i = 0; i < V; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedIds[i] = order[i];
+        }
+    }
+
+    // Return the lookup key of a name (trimmed, lowercase)
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Return the number of cities indexed
+    public int size()   {return names.length;}
+
+    // Return the display name of city v
+    public String name(int v)   {return names[v];}
+
+    // Return the id of the named city (any capitalization), or -1 if there is no such city
+    public int indexOf(String name) {
+        Integer v = ids.get(key(name));
+        return v == null ? -1 : v;
+    }
+
+    // Return the ids of up to max cities whose name starts with prefix (any capitalization), in name order
+    public int[] withPrefix(String prefix, int max) {
+        String p = key(prefix);
+        int i = lowerBound(p);
+        int n = 0;
+        int[] result = new int[Math.max(0, Math.min(max, names.length))];
+        while (n < result.length && i < sortedKeys.length && sortedKeys[i].startsWith(p))
+            result[n++] = sortedIds[i++];
+        return Arrays.copyOf(result, n);
+    }
+
+    // Return the first position in sortedKeys whose key is >= p
+    private int lowerBound(String p) {
+        int lo = 0;
+        int hi = sortedKeys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedKeys[mid].compareTo(p) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // Return the ids of up to max cities that the user most likely meant by name: names starting with it,
+    // then names at most max(2, length / 3) edits away, nearest first (ties in name order)
+    public int[] suggest(String name, int max) {
+        String p = key(name);
+        int[] prefixed = withPrefix(p, max);
+        if (prefixed.length == max || p.isEmpty())
+            return prefixed;
+
+        boolean[] taken = new boolean[names.length];
+        for (int v : prefixed)
+            taken[v] = true;
+
+        // Scan in name order, keeping every close enough name with its distance
+        int limit = Math.max(2, p.length() / 3);
+        List<int[]> close = new ArrayList<int[]>();
+        int[] prev = new int[p.length() + 1];
+        int[] curr = new int[p.length() + 1];
+        for (int i = 0; i < sortedKeys.length; i++) {
+            int v = sortedIds[i];
+            if (taken[v] || Math.abs(sortedKeys[i].length() - p.length()) > limit)
+                continue;
+            int d = distance(p, sortedKeys[i], limit, prev, curr);
+            if (d <= limit)
+                close.add(new int[] {d, i});
+        }
+        close.sort((x, y) -> x[0] != y[0] ? Integer.compare(x[0], y[0]) : Integer.compare(x[1], y[1]));
+
+        int n = prefixed.length;
+        int[] result = Arrays.copyOf(prefixed, Math.min(max, n + close.size()));
+        for (int j = 0; n < result.length; j++)
+            result[n++] = sortedIds[close.get(j)[1]];
+        return result;
+    }
+
+    // Return the Levenshtein distance between s and t, or limit + 1 once it is sure to exceed limit
+    // (prev and curr are scratch rows of length s.length() + 1)
+    private static int distance(String s, String t, int limit, int[] prev, int[] curr) {
+        for (int i = 0; i <= s.length(); i++)
+            prev[i] = i;
+        for (int j = 1; j <= t.length(); j++) {
+            curr[0] = j;
+            int best = curr[0];
+            char c = t.charAt(j - 1);
+            for (int i = 1; i <= s.length(); i++) {
+                int cost = s.charAt(i - 1) == c ? 0 : 1;
+                curr[i] = Math.min(Math.min(curr[i - 1] + 1, prev[i] + 1), prev[i - 1] + cost);
+                best = Math.min(best, curr[i]);
+            }
+            if (best > limit)
+                return limit + 1;
+            int[] swap = prev;
+            prev = curr;
+            curr = swap;
+        }
+        return prev[s.length()];
+    }
+
+    // Return the names of cities as a comma-separated list
+    public String names(int[] cities) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < cities.length; i++) {
+            if (i > 0)
+                list.append(", ");
+            list.append(names[cities[i]]);
+        }
+        return list.toString();
+    }
+
+    // Test client: resolve a name, or suggest what it might have meant
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = GraphSnapshot.isSnapshot(args[0]) ? GraphSnapshot.read(args[0]) : RouteFileReader.read(args[0]);
+        long start = System.nanoTime();
+        CityIndex index = new CityIndex(graph);
+        System.out.printf("Indexed %d cities in %.2f ms%n", index.size(), (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        int v = index.indexOf(args[1]);
+        if (v >= 0)
+            System.out.println(args[1] + " is city " + v + " (" + index.name(v) + ")");
+        else
+            System.out.println("Not found. Did you mean: " + index.names(index.suggest(args[1], 5)) + "?");
+        System.out.printf("Lookup took %.3f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,801 @@
+/*
+ Optional contraction hierarchy of one network for one weight (cost or distance), for answering
+ "cheapest route" and "shortest route" questions in microseconds instead of searching the network.
+ Preprocessing contracts the cities one by one, least important first: a contracted city leaves
+ the network, and a shortcut between two of its neighbors replaces every route through it that no
+ other route (a witness, found by a bounded Dijkstra search) is as good as. Every city keeps the
+ routes and shortcuts to the cities contracted after it (its upward edges). A query then runs
+ Dijkstra upwards from both ends at once and meets at the most important city of the best route;
+ shortcuts are unpacked into the arcs they stand for, and every edge knows its number of hops.
+ Routes are compared by weight, then by hops, so among equally good routes one with the fewest hops
+ is returned. Weights must be nonnegative.
+ Preprocessing runs in parallel rounds: the cities whose priority (mostly shortcuts added minus
+ routes removed, see Builder.priority()) is lower than that of every neighbor are contracted
+ together, their witness searches on all cores (avoiding every city of the round), and the
+ shortcuts are then added in city order, so the hierarchy is the same on any number of cores.
+ A hierarchy is registered with the network it was built for, like a BoundTable; a changed network
+ has none until one is built for it. Hierarchies can be saved next to the network file and read
+ back, checked against a fingerprint of the network:
+   To CREATE: java ContractionHierarchy global.txt global.txt.ch
+ Layout (little-endian):
+   int magic, int version, int V, int count, long fingerprint of the network
+   count times: int order (RouteOrder ordinal), int edges, int offset[V + 1], int target[edges],
+     int hops[edges], int first[edges], int second[edges], double weight[edges]
+   long CRC32 of every preceding byte
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+public class ContractionHierarchy {
+    public static final int MAGIC = 0x48435241;     // "ARCH" when read as little-endian bytes
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    // The weights a hierarchy is built for by default (load() and the client)
+    public static final RouteOrder[] ORDERS = {RouteOrder.COST, RouteOrder.DISTANCE};
+
+    // Most cities a witness search settles before giving up: when contracting a city (the shortcut is then
+    // added to be safe) and when only estimating how many shortcuts contracting it would add
+    private static final int WITNESS_LIMIT = 200;
+    private static final int PRIORITY_WITNESS_LIMIT = 10;
+
+    // The hierarchies registered with each network, indexed by RouteOrder ordinal (weak keys, as in BoundTable)
+    private static final Map<FlightGraph, ContractionHierarchy[]> hierarchies =
+        Collections.synchronizedMap(new WeakHashMap<FlightGraph, ContractionHierarchy[]>());
+
+    // Attributes of a hierarchy: the upward edges of every city in CSR form. An edge is a route (first is
+    // -1 - the arc running it downwards, second the arc running it upwards) or a shortcut through a city
+    // contracted earlier (first is that city's upward edge to this city, second its upward edge to target)
+    private final RouteOrder order;
+    private final int V;
+    private final long fingerprint;
+    private final int[] offset;
+    private final int[] target;
+    private final int[] hops;
+    private final int[] first;
+    private final int[] second;
+    private final double[] weight;
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+    // Constructor: Wrap the upward edges of a hierarchy for the network with the given fingerprint
+    private ContractionHierarchy(RouteOrder order, int V, long fingerprint, int[] offset, int[] target, int[] hops,
+                                 int[] first, int[] second, double[] weight) {
+        this.order = order;
+        this.V = V;
+        this.fingerprint = fingerprint;
+        this.offset = offset;
+        this.target = target;
+        this.hops = hops;
+        this.first = first;
+        this.second = second;
+        this.weight = weight;
+    }
+
+    // Return the hierarchy of graph for order (whose weight must be nonnegative on every arc), built on all cores,
+    // and register it with graph
+    public static ContractionHierarchy build(FlightGraph graph, RouteOrder order) {
+        return new Builder(graph, order).build().attach(graph);
+    }
+
+    // Return the hierarchy registered with graph for order, or null if it has none
+    public static ContractionHierarchy of(FlightGraph graph, RouteOrder order) {
+        ContractionHierarchy[] registered = hierarchies.get(graph);
+        return registered == null ? null : registered[order.ordinal()];
+    }
+
+    // Register this hierarchy with graph (which must be the network it was built for); return this hierarchy
+    public ContractionHierarchy attach(FlightGraph graph) {
+        if (graph.V() != V)
+            throw new IllegalArgumentException("The hierarchy is for " + V + " cities, the network has " + graph.V());
+        synchronized (hierarchies) {
+            ContractionHierarchy[] registered = hierarchies.get(graph);
+            registered = registered == null ? new ContractionHierarchy[RouteOrder.values().length] : registered.clone();
+            registered[order.ordinal()] = this;
+            hierarchies.put(graph, registered);
+        }
+        return this;
+    }
+
+    // Return the weight the hierarchy was built for
+    public RouteOrder order()   {return order;}
+
+    // Return the number of cities
+    public int V()  {return V;}
+
+    // Return the number of upward edges (routes and shortcuts)
+    public int edges()  {return target.length;}
+
+    // Return the least weight of a route from source to destination (+infinity if there is none)
+    public double weight(int source, int destination) {
+        Search search = searches.get();
+        return search.run(source, destination) ? search.bestWeight : Double.POSITIVE_INFINITY;
+    }
+
+    // Return the hops of the route weight() measures (DestinationBounds.UNREACHABLE if there is none)
+    public int hops(int source, int destination) {
+        Search search = searches.get();
+        return search.run(source, destination) ? search.bestHops : DestinationBounds.UNREACHABLE;
+    }
+
+    // Return the arcs of a least-weight route from source to destination (the one with the fewest hops among
+    // equally good ones), in order from source, or null if there is none
+    public int[] arcs(int source, int destination) {
+        Search search = searches.get();
+        return search.run(source, destination) ? search.arcs() : null;
+    }
+
+    // Write the arcs edge e stands for into arcs from index n, upwards (from its city to its target) or
+    // downwards; return the index after the last one written
+    private int unpack(int e, boolean up, int[] arcs, int n) {
+        if (first[e] < 0) {
+            arcs[n++] = up ? second[e] : -1 - first[e];
+            return n;
+        }
+        if (up)
+            return unpack(second[e], true, arcs, unpack(first[e], false, arcs, n));
+        return unpack(first[e], true, arcs, unpack(second[e], false, arcs, n));
+    }
+
+    // Return true if w1 (with h1 hops) comes before w2 (with h2 hops): less weight, then fewer hops
+    private static boolean less(double w1, int h1, double w2, int h2) {
+        return w1 < w2 || (w1 == w2 && h1 < h2);
+    }
+
+    // Query scratch space of one thread: the labels of the search from each end (index 0 from the source, 1 from
+    // the destination), valid where stamp is the current query
+    private final class Search {
+        private final double[][] label = new double[2][V];
+        private final int[][] labelHops = new int[2][V];
+        private final int[][] edge = new int[2][V];
+        private final int[][] stamp = new int[2][V];
+        private final Heap[] heap = {new Heap(), new Heap()};
+        private int query;
+        private int source;
+        private int destination;
+        private int meet;
+        private double bestWeight;
+        private int bestHops;
+
+        // Search from both ends until neither can improve on the best meeting found; return true if there is a route
+        boolean run(int source, int destination) {
+            if (source < 0 || source >= V || destination < 0 || destination >= V)
+                throw new IllegalArgumentException("City index is not between 0 and " + (V - 1));
+            this.source = source;
+            this.destination = destination;
+            if (++query == 0) {
+                for (int[] s : stamp)
+                    Arrays.fill(s, 0);
+                query = 1;
+            }
+            meet = -1;
+            bestWeight = Double.POSITIVE_INFINITY;
+            bestHops = Integer.MAX_VALUE;
+            heap[0].clear();
+            heap[1].clear();
+            reach(0, source, 0.0, 0, -1);
+            reach(1, destination, 0.0, 0, -1);
+
+            while (!heap[0].isEmpty() || !heap[1].isEmpty()) {
+                // Take the smaller top: once it cannot beat the best meeting, nothing left can
+                int d = heap[0].isEmpty() || (!heap[1].isEmpty()
+                        && less(heap[1].topWeight(), heap[1].topHops(), heap[0].topWeight(), heap[0].topHops())) ? 1 : 0;
+                Heap q = heap[d];
+                double w = q.topWeight();
+                int h = q.topHops();
+                int v = q.topCity();
+                q.pop();
+                if (!less(w, h, bestWeight, bestHops))
+                    break;
+                if (w != label[d][v] || h != labelHops[d][v])
+                    continue;
+                if (stamp[1 - d][v] == query && less(w + label[1 - d][v], h + labelHops[1 - d][v], bestWeight, bestHops)) {
+                    bestWeight = w + label[1 - d][v];
+                    bestHops = h + labelHops[1 - d][v];
+                    meet = v;
+                }
+
+                // Stall-on-demand: a city reached better through a more important neighbor is on no best route
+                // of this direction, so the search does not go on from it
+                boolean stalled = false;
+                for (int e = offset[v]; e < offset[v + 1] && !stalled; e++) {
+                    int x = target[e];
+                    stalled = stamp[d][x] == query && less(label[d][x] + weight[e], labelHops[d][x] + hops[e], w, h);
+                }
+                if (stalled)
+                    continue;
+                for (int e = offset[v]; e < offset[v + 1]; e++) {
+                    int x = target[e];
+                    double wx = w + weight[e];
+                    int hx = h + hops[e];
+                    if (stamp[d][x] != query || less(wx, hx, label[d][x], labelHops[d][x]))
+                        reach(d, x, wx, hx, e);
+                }
+            }
+            return meet >= 0;
+        }
+
+        // Label city v in direction d (reached over upward edge e) and queue it
+        private void reach(int d, int v, double w, int h, int e) {
+            stamp[d][v] = query;
+            label[d][v] = w;
+            labelHops[d][v] = h;
+            edge[d][v] = e;
+            heap[d].push(w, h, v);
+        }
+
+        // Return the arcs of the route found by the last run()
+        int[] arcs() {
+            int[] arcs = new int[bestHops];
+
+            // The edges from the source up to the meeting city, collected backwards
+            int[] chain = new int[bestHops];
+            int count = 0;
+            for (int v = meet; v != source; v = cityBelow(0, v))
+                chain[count++] = edge[0][v];
+            int n = 0;
+            while (count > 0)
+                n = unpack(chain[--count], true, arcs, n);
+
+            // The edges from the meeting city down to the destination
+            for (int v = meet; v != destination; v = cityBelow(1, v))
+                n = unpack(edge[1][v], false, arcs, n);
+            return arcs;
+        }
+
+        // Return the city the search in direction d reached v from
+        private int cityBelow(int d, int v) {
+            int e = edge[d][v];
+            int lo = 0;
+            int hi = V - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (offset[mid] <= e)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            return lo;
+        }
+    }
+
+    // Binary heap of (weight, hops, city) entries in (weight, hops) order; an entry whose city was reached
+    // more cheaply after it was pushed is skipped by the caller when it comes out
+    private static final class Heap {
+        private double[] weight = new double[64];
+        private int[] hops = new int[64];
+        private int[] city = new int[64];
+        private int size;
+
+        void clear()    {size = 0;}
+
+        boolean isEmpty()   {return size == 0;}
+
+        double topWeight()  {return weight[0];}
+
+        int topHops()   {return hops[0];}
+
+        int topCity()   {return city[0];}
+
+        // Add an entry
+        void push(double w, int h, int v) {
+            if (size == city.length) {
+                weight = Arrays.copyOf(weight, 2 * size);
+                hops = Arrays.copyOf(hops, 2 * size);
+                city = Arrays.copyOf(city, 2 * size);
+            }
+            int i = size++;
+            while (i > 0 && less(w, h, weight[(i - 1) / 2], hops[(i - 1) / 2])) {
+                int p = (i - 1) / 2;
+                weight[i] = weight[p];
+                hops[i] = hops[p];
+                city[i] = city[p];
+                i = p;
+            }
+            weight[i] = w;
+            hops[i] = h;
+            city[i] = v;
+        }
+
+        // Remove the first entry
+        void pop() {
+            double w = weight[--size];
+            int h = hops[size];
+            int v = city[size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && less(weight[child + 1], hops[child + 1], weight[child], hops[child]))
+                    child++;
+                if (!less(weight[child], hops[child], w, h))
+                    break;
+                weight[i] = weight[child];
+                hops[i] = hops[child];
+                city[i] = city[child];
+                i = child;
+            }
+            weight[i] = w;
+            hops[i] = h;
+            city[i] = v;
+        }
+    }
+
+    // Contracts the cities of one network in rounds. Edges (routes and shortcuts) are numbered as they are
+    // created; adj[v] lists the edges between v and the cities not contracted yet
+    private static final class Builder {
+        private final FlightGraph graph;
+        private final RouteOrder order;
+        private final int V;
+        private int edges;
+        private int[] tail = new int[64];
+        private int[] head = new int[64];
+        private int[] edgeHops = new int[64];
+        private int[] edgeFirst = new int[64];      // child edges of a shortcut (its tail's, then its head's)
+        private int[] edgeSecond = new int[64];     // or -1 and the arc from tail to head for a route
+        private double[] edgeWeight = new double[64];
+        private final int[][] adj;
+        private final int[] degree;
+        private final int[][] up;
+        private final boolean[] contracting;
+        private final int[] contractedNeighbors;
+        private final int[] priority;
+        private final ThreadLocal<Witness> witnesses;
+
+        Builder(FlightGraph graph, RouteOrder order) {
+            this.graph = graph;
+            this.order = order;
+            this.V = graph.V();
+            this.adj = new int[V][];
+            this.degree = new int[V];
+            this.up = new int[V][];
+            this.contracting = new boolean[V];
+            this.contractedNeighbors = new int[V];
+            this.priority = new int[V];
+            this.witnesses = ThreadLocal.withInitial(Witness::new);
+
+            // One edge per pair of neighbors: the best of the routes between them
+            int[] best = new int[V];
+            Arrays.fill(best, -1);
+            for (int v = 0; v < V; v++) {
+                adj[v] = new int[4];
+                for (int a = graph.begin(v); a < graph.end(v); a++) {
+                    double w = order.key(1, graph.cost(a), graph.distance(a));
+                    if (w < 0 || Double.isNaN(w))
+                        throw new IllegalArgumentException("A contraction hierarchy needs nonnegative weights (arc " + a + ")");
+                }
+            }
+            for (int v = 0; v < V; v++) {
+                for (int a = graph.begin(v); a < graph.end(v); a++) {
+                    int w = graph.target(a);
+                    if (w <= v)
+                        continue;
+                    double c = order.key(1, graph.cost(a), graph.distance(a));
+                    int e = best[w];
+                    if (e >= 0 && tail[e] == v) {
+                        if (c < edgeWeight[e]) {
+                            edgeWeight[e] = c;
+                            edgeSecond[e] = a;
+                        }
+                        continue;
+                    }
+                    best[w] = addEdge(v, w, c, 1, -1, a);
+                }
+            }
+        }
+
+        // Return the city at the other end of edge e from v
+        private int other(int e, int v)     {return tail[e] ^ head[e] ^ v;}
+
+        // Create an edge between x and y and add it to both cities' lists; return its number
+        private int addEdge(int x, int y, double w, int h, int e1, int e2) {
+            if (edges == tail.length) {
+                int n = 2 * edges;
+                tail = Arrays.copyOf(tail, n);
+                head = Arrays.copyOf(head, n);
+                edgeHops = Arrays.copyOf(edgeHops, n);
+                edgeFirst = Arrays.copyOf(edgeFirst, n);
+                edgeSecond = Arrays.copyOf(edgeSecond, n);
+                edgeWeight = Arrays.copyOf(edgeWeight, n);
+            }
+            int e = edges++;
+            tail[e] = x;
+            head[e] = y;
+            edgeWeight[e] = w;
+            edgeHops[e] = h;
+            edgeFirst[e] = e1;
+            edgeSecond[e] = e2;
+            link(x, e);
+            link(y, e);
+            return e;
+        }
+
+        // Add edge e to v's list
+        private void link(int v, int e) {
+            if (degree[v] == adj[v].length)
+                adj[v] = Arrays.copyOf(adj[v], 2 * degree[v]);
+            adj[v][degree[v]++] = e;
+        }
+
+        // Remove edge e from v's list
+        private void unlink(int v, int e) {
+            int[] list = adj[v];
+            for (int i = 0; i < degree[v]; i++) {
+                if (list[i] == e) {
+                    list[i] = list[--degree[v]];
+                    return;
+                }
+            }
+        }
+
+        // Return the shortcuts contracting v needs, as pairs of v's edges (their far ends get a shortcut),
+        // while v and every city of the current round are out of the network
+        private int[] shortcuts(int v, int settleLimit) {
+            Witness witness = witnesses.get();
+            int[] list = adj[v];
+            int n = degree[v];
+            int[] pairs = new int[16];
+            int count = 0;
+            for (int i = 0; i + 1 < n; i++) {
+                int ei = list[i];
+                double limit = 0.0;
+                for (int j = i + 1; j < n; j++)
+                    limit = Math.max(limit, edgeWeight[ei] + edgeWeight[list[j]]);
+                witness.run(other(ei, v), v, list, i + 1, n, limit, settleLimit);
+                for (int j = i + 1; j < n; j++) {
+                    int ej = list[j];
+                    if (witness.beats(other(ej, v), edgeWeight[ei] + edgeWeight[ej], edgeHops[ei] + edgeHops[ej]))
+                        continue;
+                    if (count + 2 > pairs.length)
+                        pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+                    pairs[count++] = ei;
+                    pairs[count++] = ej;
+                }
+            }
+            return Arrays.copyOf(pairs, count);
+        }
+
+        // Return v's priority: twice the shortcuts contracting it would add minus the edges it would remove, plus
+        // its neighbors already contracted (so the contracted cities spread evenly over the network)
+        private int priority(int v) {
+            return 2 * (shortcuts(v, PRIORITY_WITNESS_LIMIT).length / 2 - degree[v]) + contractedNeighbors[v];
+        }
+
+        // Return true if v's priority is lower than every remaining neighbor's (ties go to the lower city number)
+        private boolean isLocalMinimum(int v) {
+            for (int i = 0; i < degree[v]; i++) {
+                int x = other(adj[v][i], v);
+                if (priority[x] < priority[v] || (priority[x] == priority[v] && x < v))
+                    return false;
+            }
+            return true;
+        }
+
+        // Contract v: its remaining edges become its upward edges and the shortcuts take its place
+        private void contract(int v, int[] pairs, boolean[] dirty) {
+            up[v] = Arrays.copyOf(adj[v], degree[v]);
+            for (int e : up[v]) {
+                int x = other(e, v);
+                unlink(x, e);
+                contractedNeighbors[x]++;
+                dirty[x] = true;
+            }
+            adj[v] = null;
+            degree[v] = 0;
+
+            for (int i = 0; i < pairs.length; i += 2) {
+                int ei = pairs[i];
+                int ej = pairs[i + 1];
+                int x = other(ei, v);
+                int y = other(ej, v);
+                double w = edgeWeight[ei] + edgeWeight[ej];
+                int h = edgeHops[ei] + edgeHops[ej];
+
+                // Keep a single edge between x and y, the better one
+                int existing = -1;
+                int s = degree[x] <= degree[y] ? x : y;
+                for (int k = 0; k < degree[s] && existing < 0; k++)
+                    if (other(adj[s][k], s) == (s == x ? y : x))
+                        existing = adj[s][k];
+                if (existing >= 0) {
+                    if (!less(w, h, edgeWeight[existing], edgeHops[existing]))
+                        continue;
+                    unlink(x, existing);
+                    unlink(y, existing);
+                }
+                addEdge(x, y, w, h, ei, ej);
+            }
+        }
+
+        // Contract every city, then number the upward edges city by city
+        ContractionHierarchy build() {
+            int remaining = V;
+            boolean[] dirty = new boolean[V];
+            Arrays.fill(dirty, true);
+            int[] round = new int[V];
+            while (remaining > 0) {
+                // Priorities of the cities whose neighborhood changed, then the round: every local minimum
+                int[] stale = IntStream.range(0, V).filter(v -> dirty[v] && !contracting[v]).toArray();
+                IntStream.of(stale).parallel().forEach(v -> priority[v] = priority(v));
+                for (int v : stale)
+                    dirty[v] = false;
+                int n = 0;
+                for (int v = 0; v < V; v++)
+                    if (!contracting[v] && isLocalMinimum(v))
+                        round[n++] = v;
+                for (int i = 0; i < n; i++)
+                    contracting[round[i]] = true;
+
+                // Witness searches of the whole round on all cores, then the shortcuts in city order
+                int[][] pairs = new int[n][];
+                IntStream.range(0, n).parallel().forEach(i -> pairs[i] = shortcuts(round[i], WITNESS_LIMIT));
+                for (int i = 0; i < n; i++)
+                    contract(round[i], pairs[i], dirty);
+                remaining -= n;
+            }
+
+            int[] offset = new int[V + 1];
+            for (int v = 0; v < V; v++)
+                offset[v + 1] = offset[v] + up[v].length;
+            int[] index = new int[edges];
+            for (int v = 0; v < V; v++)
+                for (int i = 0; i < up[v].length; i++)
+                    index[up[v][i]] = offset[v] + i;
+
+            int m = offset[V];
+            int[] target = new int[m];
+            int[] hops = new int[m];
+            int[] first = new int[m];
+            int[] second = new int[m];
+            double[] weight = new double[m];
+            for (int v = 0; v < V; v++) {
+                for (int i = 0; i < up[v].length; i++) {
+                    int e = up[v][i];
+                    int k = offset[v] + i;
+                    boolean forward = tail[e] == v;
+                    target[k] = other(e, v);
+                    hops[k] = edgeHops[e];
+                    weight[k] = edgeWeight[e];
+                    if (edgeFirst[e] < 0) {
+                        int a = edgeSecond[e];
+                        first[k] = -1 - (forward ? graph.twin(a) : a);
+                        second[k] = forward ? a : graph.twin(a);
+                    }
+                    else {
+                        first[k] = index[forward ? edgeFirst[e] : edgeSecond[e]];
+                        second[k] = index[forward ? edgeSecond[e] : edgeFirst[e]];
+                    }
+                }
+            }
+            return new ContractionHierarchy(order, V, BoundTable.fingerprint(graph), offset, target, hops, first,
+                                            second, weight);
+        }
+
+        // Witness search scratch space of one thread: Dijkstra from one neighbor of the city being contracted
+        private final class Witness {
+            private final double[] label = new double[V];
+            private final int[] labelHops = new int[V];
+            private final int[] stamp = new int[V];
+            private final int[] goal = new int[V];
+            private final Heap heap = new Heap();
+            private int search;
+
+            // Search from x without passing through v or the cities of the round, settling at most WITNESS_LIMIT
+            // cities and none farther than limit
+            void run(int x, int v, int[] list, int from, int to, double limit, int settleLimit) {
+                search++;
+                for (int j = from; j < to; j++)
+                    goal[other(list[j], v)] = search;
+                int goals = to - from;
+                heap.clear();
+                stamp[x] = search;
+                label[x] = 0.0;
+                labelHops[x] = 0;
+                heap.push(0.0, 0, x);
+                int settled = 0;
+                while (!heap.isEmpty()) {
+                    double w = heap.topWeight();
+                    int h = heap.topHops();
+                    int u = heap.topCity();
+                    heap.pop();
+                    if (w != label[u] || h != labelHops[u])
+                        continue;
+                    if (w > limit || ++settled > settleLimit)
+                        break;
+                    if (goal[u] == search && --goals == 0)
+                        break;
+                    for (int i = 0; i < degree[u]; i++) {
+                        int e = adj[u][i];
+                        int z = other(e, u);
+                        if (z == v || contracting[z])
+                            continue;
+                        double wz = w + edgeWeight[e];
+                        int hz = h + edgeHops[e];
+                        if (stamp[z] != search || less(wz, hz, label[z], labelHops[z])) {
+                            stamp[z] = search;
+                            label[z] = wz;
+                            labelHops[z] = hz;
+                            heap.push(wz, hz, z);
+                        }
+                    }
+                }
+            }
+
+            // Return true if the last search reached y at least as well as weight w in h hops
+            boolean beats(int y, double w, int h) {
+                return stamp[y] == search && !less(w, h, label[y], labelHops[y]);
+            }
+        }
+    }
+
+    // Write hierarchies (of the same network, one per weight) to file
+    public static void write(String file, ContractionHierarchy... hierarchies) throws IOException {
+        if (hierarchies.length == 0)
+            throw new IllegalArgumentException("No hierarchy to write");
+        int V = hierarchies[0].V;
+        long size = HEADER_BYTES + 8;
+        for (ContractionHierarchy h : hierarchies) {
+            if (h.V != V || h.fingerprint != hierarchies[0].fingerprint)
+                throw new IllegalArgumentException("The hierarchies were built for different networks");
+            size += 8 + 4L * (V + 1) + 24L * h.edges();
+        }
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Hierarchies are too large for a single file (" + size + " bytes)");
+
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(hierarchies.length).putLong(hierarchies[0].fingerprint);
+
+            // Arrays go through typed views, then the position skips past what each view wrote
+            for (ContractionHierarchy h : hierarchies) {
+                out.putInt(h.order.ordinal()).putInt(h.edges());
+                IntBuffer ints = out.asIntBuffer();
+                ints.put(h.offset).put(h.target).put(h.hops).put(h.first).put(h.second);
+                out.position(out.position() + 4 * ints.position());
+                DoubleBuffer doubles = out.asDoubleBuffer();
+                doubles.put(h.weight);
+                out.position(out.position() + 8 * doubles.position());
+            }
+
+            out.putLong(checksum(out, out.position()));
+            out.force();
+        }
+    }
+
+    // Read the hierarchies saved in file for graph and register them; throws IOException if the file is corrupt
+    // or was saved for a different network
+    public static ContractionHierarchy[] read(FlightGraph graph, String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8 || size > Integer.MAX_VALUE)
+                throw new IOException(file + ": not a contraction hierarchy (unexpected size " + size + ")");
+
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC)
+                throw new IOException(file + ": not a contraction hierarchy (bad magic number)");
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException(file + ": unsupported contraction hierarchy version " + version + " (expected " + VERSION + ")");
+            int V = in.getInt();
+            int count = in.getInt();
+            long fingerprint = in.getLong();
+            if (V != graph.V() || fingerprint != BoundTable.fingerprint(graph))
+                throw new IOException(file + ": contraction hierarchy was built for a different network");
+
+            int end = (int) size - 8;
+            if (in.getLong(end) != checksum(in, end))
+                throw new IOException(file + ": contraction hierarchy checksum mismatch (file is corrupt or truncated)");
+
+            try {
+                ContractionHierarchy[] read = new ContractionHierarchy[count];
+                for (int i = 0; i < count; i++) {
+                    RouteOrder order = RouteOrder.values()[in.getInt()];
+                    int edges = in.getInt();
+                    int[] offset = new int[V + 1];
+                    int[] target = new int[edges];
+                    int[] hops = new int[edges];
+                    int[] first = new int[edges];
+                    int[] second = new int[edges];
+                    double[] weight = new double[edges];
+                    IntBuffer ints = in.asIntBuffer();
+                    ints.get(offset).get(target).get(hops).get(first).get(second);
+                    in.position(in.position() + 4 * ints.position());
+                    DoubleBuffer doubles = in.asDoubleBuffer();
+                    doubles.get(weight);
+                    in.position(in.position() + 8 * doubles.position());
+                    read[i] = new ContractionHierarchy(order, V, fingerprint, offset, target, hops, first, second, weight);
+                }
+                if (in.position() != end)
+                    throw new IOException(file + ": corrupt contraction hierarchy (sections do not match the header)");
+                for (ContractionHierarchy h : read)
+                    h.attach(graph);
+                return read;
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw new IOException(file + ": corrupt contraction hierarchy (" + e + ")", e);
+            }
+        }
+    }
+
+    // Return graph's hierarchies for ORDERS from file if it holds them for this network, otherwise build them
+    // and save them to file
+    public static ContractionHierarchy[] load(FlightGraph graph, String file) throws IOException {
+        if (Files.exists(Paths.get(file))) {
+            try {
+                return read(graph, file);
+            } catch (IOException e) {
+                System.err.println(e.getMessage() + "; rebuilding it");
+            }
+        }
+        ContractionHierarchy[] built = new ContractionHierarchy[ORDERS.length];
+        for (int i = 0; i < ORDERS.length; i++)
+            built[i] = build(graph, ORDERS[i]);
+        write(file, built);
+        return built;
+    }
+
+    // Return the CRC32 of the first length bytes of buffer
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        view.position(0).limit(length);
+        crc.update(view);
+        return crc.getValue();
+    }
+
+    // Client: build a network's hierarchies, save them and time random queries
+    // (java ContractionHierarchy routes.txt routes.txt.ch)
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = GraphSnapshot.isSnapshot(args[0]) ? GraphSnapshot.read(args[0]) : RouteFileReader.read(args[0]);
+        long start = System.nanoTime();
+        ContractionHierarchy[] built = new ContractionHierarchy[ORDERS.length];
+        for (int i = 0; i < ORDERS.length; i++)
+            built[i] = build(graph, ORDERS[i]);
+        long finished = System.nanoTime();
+        write(args[1], built);
+        long written = System.nanoTime();
+        read(graph, args[1]);
+        long loaded = System.nanoTime();
+
+        System.out.printf("%s -> %s: %d cities, %d direct routes, %,d bytes%n", args[0], args[1], graph.V(),
+                          graph.routes(), Files.size(Paths.get(args[1])));
+        System.out.printf("build %.1f ms, write %.1f ms, load %.1f ms%n",
+                          (finished - start) / 1e6, (written - finished) / 1e6, (loaded - written) / 1e6);
+
+        int queries = 10_000;
+        for (ContractionHierarchy h : built) {
+            Random random = new Random(1);
+            long hops = 0;
+            long begin = System.nanoTime();
+            for (int q = 0; q < queries; q++) {
+                int[] arcs = h.arcs(random.nextInt(graph.V()), random.nextInt(graph.V()));
+                hops += arcs == null ? 0 : arcs.length;
+            }
+            long elapsed = System.nanoTime() - begin;
+            int shortcuts = 0;
+            for (int e = 0; e < h.edges(); e++)
+                if (h.first[e] >= 0)
+                    shortcuts++;
+            System.out.printf("by %s: %,d upward edges (%,d shortcuts), %.1f us per route, %.1f hops on average%n",
+                              h.order.description(), h.edges(), shortcuts, elapsed / 1e3 / queries, (double) hops / queries);
+        }
+    }
+}
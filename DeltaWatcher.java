@@ -0,0 +1,171 @@
+/*
+ Follows a delta file of route updates (see RouteUpdate) and applies them to a running Airline.
+ The file is treated as a log that only grows: every time lines are appended, the new complete
+ lines are read (from where the last read stopped) and applied as one Airline.update(), so a
+ burst of fare changes costs one new network version. On start the whole file is applied, which
+ brings a freshly loaded network up to date. If the file shrinks it is taken to be a new log and
+ read from its beginning.
+ Lines that do not parse, or updates that do not apply (unknown city, no such route), are reported
+ on standard error with their line number and skipped; the rest of the batch is still applied.
+ Changes are noticed through a WatchService, with a poll every second as a fallback.
+ To RUN: java DeltaWatcher global.txt deltas.txt (prints the network version after each batch)
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class DeltaWatcher implements Runnable, AutoCloseable {
+    // How often the file is checked when no change notification arrives
+    private static final long POLL_MILLIS = 1000;
+
+    // Attributes of a watcher (airline to update, file, read position, watch thread)
+    private final Airline airline;
+    private final Path file;
+    private long position;
+    private int line;
+    private WatchService watcher;
+    private Thread thread;
+    private volatile boolean closed;
+
+    // Constructor: Watch file for updates to airline (call start(), or poll() to check by hand)
+    public DeltaWatcher(Airline airline, String file) {
+        this.airline = airline;
+        this.file = Paths.get(file).toAbsolutePath();
+    }
+
+    // Apply the whole file, then keep following it on a background (daemon) thread
+    public synchronized void start() throws IOException {
+        if (thread != null)
+            throw new IllegalStateException("The watcher is already running");
+        poll();
+        watcher = file.getFileSystem().newWatchService();
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this, "delta-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Follow the file until closed
+    public void run() {
+        while (!closed) {
+            try {
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                poll();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println(file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Read the complete lines appended since the last call and apply them; return the number of updates applied
+    public synchronized int poll() throws IOException {
+        if (!Files.exists(file))
+            return 0;
+
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < position) {
+                position = 0;
+                line = 0;
+            }
+            if (size == position)
+                return 0;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size - position, Integer.MAX_VALUE - 8));
+            channel.position(position);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0)
+                ;
+            bytes = buffer.array();
+        }
+
+        // Only whole lines: a line still being written is read next time
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n')
+            end--;
+        if (end == 0)
+            return 0;
+        position += end;
+
+        ArrayList<RouteUpdate> updates = new ArrayList<RouteUpdate>();
+        ArrayList<Integer> lines = new ArrayList<Integer>();
+        for (String text : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            line++;
+            try {
+                RouteUpdate update = RouteUpdate.parse(text);
+                if (update != null) {
+                    updates.add(update);
+                    lines.add(line);
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println(file + ":" + line + ": " + e.getMessage());
+            }
+        }
+        return apply(updates, lines);
+    }
+
+    // Apply updates as one batch; if one of them fails, apply them one by one and report the ones that fail
+    private int apply(List<RouteUpdate> updates, List<Integer> lines) {
+        if (updates.isEmpty())
+            return 0;
+        try {
+            airline.update(updates);
+            return updates.size();
+        } catch (IllegalArgumentException e) {
+            int applied = 0;
+            for (int i = 0; i < updates.size(); i++) {
+                try {
+                    airline.update(Collections.singletonList(updates.get(i)));
+                    applied++;
+                } catch (IllegalArgumentException failed) {
+                    System.err.println(file + ":" + lines.get(i) + ": " + failed.getMessage());
+                }
+            }
+            return applied;
+        }
+    }
+
+    // Stop following the file
+    public void close() throws IOException {
+        closed = true;
+        if (watcher != null)
+            watcher.close();
+        if (thread != null)
+            thread.interrupt();
+    }
+
+    // Test client: load a network, follow a delta file and report every new version
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Airline airline = new Airline(args[0]);
+        DeltaWatcher watcher = new DeltaWatcher(airline, args[1]);
+        watcher.start();
+        long version = -1;
+        while (true) {
+            if (airline.getVersion() != version) {
+                version = airline.getVersion();
+                System.out.println("Network version " + version + ": " + airline.routes() + " direct routes");
+            }
+            Thread.sleep(200);
+        }
+    }
+}
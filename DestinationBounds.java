@@ -0,0 +1,150 @@
+/*
+ Lower bounds on what is still needed to reach one destination city, computed per query:
+   cost(v)  - cheapest total cost from v to the destination (Dijkstra on arc costs)
+   hops(v)  - fewest hops from v to the destination (breadth-first search)
+   distance(v) - shortest total distance from v to the destination (Dijkstra on arc distances,
+                 only computed when requested since most searches never need it)
+ Every route is stored in both directions, so searching outward from the destination gives
+ the distances towards it. The bounds ignore which cities a partial route has already used,
+ so they never overestimate and a search may safely cut any branch that cannot finish within
+ its budget even under these optimistic assumptions.
+ Searches get their bounds from towards(), which reads them from the network's BoundTable when
+ one was built instead of running the searches again.
+ Author: Caleb Tsai
+ */
+
+import java.util.Arrays;
+
+public class DestinationBounds {
+    // Hop bound of a city that cannot reach the destination at all (large, but safe to add to)
+    public static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    // Relative slack on limits: sums taken in a different order may differ in the last bits
+    private static final double SLACK = 1e-9;
+
+    // Attributes of the bounds (one entry per city)
+    private final int destination;
+    private final double[] costTo;
+    private final int[] hopsTo;
+    private final double[] distanceTo;
+
+    // Return the bounds towards destination: from graph's BoundTable if it has one (always with distances),
+    // otherwise computed here
+    public static DestinationBounds towards(FlightGraph graph, int destination, boolean withDistance) {
+        BoundTable table = BoundTable.of(graph);
+        return table != null ? table.towards(destination) : new DestinationBounds(graph, destination, withDistance);
+    }
+
+    // Constructor: Compute the cost and hop bounds of every city towards destination
+    public DestinationBounds(FlightGraph graph, int destination) {
+        this(graph, destination, false);
+    }
+
+    // Constructor: Compute the cost and hop bounds, and the distance bounds too if withDistance is set
+    public DestinationBounds(FlightGraph graph, int destination, boolean withDistance) {
+        int V = graph.V();
+        this.destination = destination;
+        this.costTo = new double[V];
+        this.hopsTo = new int[V];
+        this.distanceTo = withDistance ? new double[V] : null;
+
+        // Fewest hops (breadth-first search)
+        Arrays.fill(hopsTo, UNREACHABLE);
+        int[] queue = new int[V];
+        int head = 0;
+        int tail = 0;
+        hopsTo[destination] = 0;
+        queue[tail++] = destination;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int a = graph.begin(v); a < graph.end(v); a++) {
+                int w = graph.target(a);
+                if (hopsTo[w] == UNREACHABLE) {
+                    hopsTo[w] = hopsTo[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        IndexMinPQ pq = new IndexMinPQ(V);
+        shortestPaths(graph, pq, true, costTo);
+        if (withDistance)
+            shortestPaths(graph, pq, false, distanceTo);
+    }
+
+    // Constructor: Wrap bounds computed elsewhere (one entry per city; distanceTo may be null)
+    public DestinationBounds(int destination, double[] costTo, int[] hopsTo, double[] distanceTo) {
+        this.destination = destination;
+        this.costTo = costTo;
+        this.hopsTo = hopsTo;
+        this.distanceTo = distanceTo;
+    }
+
+    // Fill to[] with the least total cost (or distance) from every city to the destination (Dijkstra)
+    private void shortestPaths(FlightGraph graph, IndexMinPQ pq, boolean byCost, double[] to) {
+        // Negative weights would break Dijkstra, so that bound is disabled (reachable cities get -infinity)
+        boolean negative = false;
+        for (int a = 0; a < graph.E() && !negative; a++)
+            negative = (byCost ? graph.cost(a) : graph.distance(a)) < 0;
+
+        if (negative) {
+            for (int v = 0; v < to.length; v++)
+                to[v] = hopsTo[v] == UNREACHABLE ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+            return;
+        }
+
+        Arrays.fill(to, Double.POSITIVE_INFINITY);
+        to[destination] = 0.0;
+        pq.clear();
+        pq.insert(destination, 0.0);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            for (int a = graph.begin(v); a < graph.end(v); a++) {
+                int w = graph.target(a);
+                double c = to[v] + (byCost ? graph.cost(a) : graph.distance(a));
+                if (c < to[w]) {
+                    to[w] = c;
+                    pq.insertOrDecrease(w, c);
+                }
+            }
+        }
+    }
+
+    // Return the destination these bounds lead to
+    public int destination()    {return destination;}
+
+    // Return the cheapest possible cost from v to the destination (+infinity if unreachable)
+    public double cost(int v)   {return costTo[v];}
+
+    // Return the fewest possible hops from v to the destination (UNREACHABLE if unreachable)
+    public int hops(int v)  {return hopsTo[v];}
+
+    // Return the shortest possible distance from v to the destination (+infinity if unreachable)
+    public double distance(int v) {
+        if (distanceTo == null)
+            throw new IllegalStateException("Distance bounds were not computed for this destination");
+        return distanceTo[v];
+    }
+
+    // Return true if distance bounds were computed
+    public boolean hasDistance()    {return distanceTo != null;}
+
+    // Return the lower bound on order's key for any route that continues from v with the given totals so far
+    public double keyBound(RouteOrder order, int v, int currHop, double currCost, double currDistance) {
+        switch (order) {
+            case HOPS:  return currHop + hopsTo[v];
+            case COST:  return currCost + costTo[v];
+            default:    return currDistance + distance(v);
+        }
+    }
+
+    // Return limit widened by a small slack, to compare sums of bounds against without rounding trouble
+    public static double withSlack(double limit) {
+        return limit + SLACK * Math.max(1.0, Math.abs(limit));
+    }
+
+    // Return true if a route at v with the given cost and hops so far might still finish within budget
+    public boolean canFinish(int v, double currCost, int currHop, double maxCost, int maxHop) {
+        return currCost + costTo[v] <= withSlack(maxCost) && currHop + hopsTo[v] <= maxHop;
+    }
+}
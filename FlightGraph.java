@@ -0,0 +1,340 @@
+/*
+ Immutable airline network stored in compressed sparse row (CSR) form.
+ Every direct route is one record (cost and distance, indexed by route number) and is reached
+ through two directed arcs, one per direction. The arcs leaving city v occupy the index range
+ [begin(v), end(v)) of the parallel target/route arrays, so a traversal walks primitive arrays
+ instead of a linked list of Edge objects; an arc holds the city it leads to and its route
+ number with a direction bit (0 for the route's own direction, from() to to()).
+ Routes are numbered in the order they were added (the order of the route file), which is the
+ order the direct routes are listed in.
+ A network is never changed in place: withRoute(), withoutRoute() and withCost() return a new
+ version (copy-on-write), so searches running on the old version are never disturbed. Arc and
+ route numbers are only meaningful within one version.
+ Author: Caleb Tsai
+ */
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class FlightGraph {
+    // Attributes of the network (cities, CSR arrays indexed by arc, route records indexed by route)
+    private final String[] cities;
+    private final int[] offset;
+    private final int[] target;
+    private final int[] route;          // route number << 1 | direction bit
+    private final double[] cost;
+    private final double[] distance;
+    private volatile int[] arcs;        // the arc running each route in each direction, computed on first use
+
+    // Constructor: Build the CSR arrays from the first n routes (v[i], w[i], distance[i], cost[i])
+    public FlightGraph(String[] cities, int[] v, int[] w, double[] distance, double[] cost, int n) {
+        int V = cities.length;
+        this.cities = cities;
+        this.offset = new int[V + 1];
+        this.target = new int[2 * n];
+        this.route = new int[2 * n];
+        this.cost = Arrays.copyOf(cost, n);
+        this.distance = Arrays.copyOf(distance, n);
+
+        // Count the arcs leaving every city, then turn the counts into starting offsets
+        for (int i = 0; i < n; i++) {
+            validateVertex(v[i]);
+            validateVertex(w[i]);
+            offset[v[i] + 1]++;
+            offset[w[i] + 1]++;
+        }
+        for (int i = 0; i < V; i++)
+            offset[i + 1] += offset[i];
+
+        // Fill each city's range back to front so neighbors keep the most-recently-added-first
+        // order that the old Bag adjacency lists produced (search results stay in the same order)
+        int[] next = new int[V];
+        for (int i = 0; i < V; i++)
+            next[i] = offset[i + 1];
+
+        for (int i = 0; i < n; i++) {
+            int a = --next[v[i]];
+            target[a] = w[i];
+            route[a] = i << 1;
+            int b = --next[w[i]];
+            target[b] = v[i];
+            route[b] = i << 1 | 1;
+        }
+    }
+
+    // Constructor: Wrap CSR arrays that were already built (e.g. read back from a GraphSnapshot): route[a] is
+    // arc a's route number << 1 | direction bit, and every route has one arc in each direction
+    public FlightGraph(String[] cities, int[] offset, int[] target, int[] route, double[] distance, double[] cost) {
+        this(cities, offset, target, route, distance, cost, true);
+    }
+
+    // Constructor: Wrap CSR arrays, checking them first if check is set (new versions of a network are trusted)
+    private FlightGraph(String[] cities, int[] offset, int[] target, int[] route, double[] distance, double[] cost,
+                        boolean check) {
+        this.cities = cities;
+        this.offset = offset;
+        this.target = target;
+        this.route = route;
+        this.cost = cost;
+        this.distance = distance;
+        if (!check)
+            return;
+
+        if (offset.length != cities.length + 1 || offset[0] != 0 || offset[cities.length] != target.length
+            || route.length != target.length || cost.length != distance.length || target.length != 2 * cost.length)
+            throw new IllegalArgumentException("CSR arrays do not match the number of cities, arcs and routes");
+        for (int v = 0; v < cities.length; v++)
+            if (offset[v] > offset[v + 1])
+                throw new IllegalArgumentException("Arc offsets must be nondecreasing");
+        for (int a = 0; a < target.length; a++)
+            validateVertex(target[a]);
+
+        // Both arcs of a route must exist and lead back to each other's city
+        int[] arcs = new int[target.length];
+        Arrays.fill(arcs, -1);
+        for (int a = 0; a < target.length; a++) {
+            if (route[a] < 0 || route[a] >= target.length || arcs[route[a]] >= 0)
+                throw new IllegalArgumentException("Arc " + a + " has an invalid or repeated route number");
+            arcs[route[a]] = a;
+        }
+        for (int v = 0; v < cities.length; v++)
+            for (int a = offset[v]; a < offset[v + 1]; a++)
+                if (target[arcs[route[a] ^ 1]] != v)
+                    throw new IllegalArgumentException("Arc " + a + " does not run its route backwards");
+        this.arcs = arcs;
+    }
+
+    // Return a network built from per-arc CSR arrays (a cost and a distance on every arc, as in version 1
+    // snapshots): each arc is paired with an arc running back with the same cost and distance, in arc order
+    public static FlightGraph fromArcs(String[] cities, int[] offset, int[] target, double[] distance, double[] cost) {
+        if (offset.length != cities.length + 1 || offset[0] != 0 || offset[cities.length] != target.length
+            || distance.length != target.length || cost.length != target.length)
+            throw new IllegalArgumentException("CSR arrays do not match the number of cities and arcs");
+        int V = cities.length;
+        for (int v = 0; v < V; v++)
+            if (offset[v] > offset[v + 1])
+                throw new IllegalArgumentException("Arc offsets must be nondecreasing");
+
+        // Sort each city's arcs by target, then match the arcs from v to w against the arcs from w to v
+        long[] sorted = new long[target.length];
+        for (int v = 0; v < V; v++) {
+            for (int a = offset[v]; a < offset[v + 1]; a++) {
+                if (target[a] < 0 || target[a] >= V)
+                    throw new IllegalArgumentException("City index " + target[a] + " is not between 0 and " + (V - 1));
+                sorted[a] = (long) target[a] << 32 | a;
+            }
+            Arrays.sort(sorted, offset[v], offset[v + 1]);
+        }
+        int[] route = new int[target.length];
+        Arrays.fill(route, -1);
+        double[] routeCost = new double[target.length / 2];
+        double[] routeDistance = new double[target.length / 2];
+        int routes = 0;
+        for (int v = 0; v < V; v++) {
+            for (int a = offset[v]; a < offset[v + 1]; a++) {
+                if (route[a] >= 0)
+                    continue;
+                int w = target[a];
+                int j = Arrays.binarySearch(sorted, offset[w], offset[w + 1], (long) v << 32);
+                for (j = j < 0 ? -j - 1 : j; route[a] < 0 && j < offset[w + 1] && (int) (sorted[j] >>> 32) == v; j++) {
+                    int b = (int) sorted[j];
+                    if (b != a && route[b] < 0 && cost[b] == cost[a] && distance[b] == distance[a]) {
+                        if (routes == routeCost.length)
+                            throw new IllegalArgumentException("Arc " + a + " has no reverse arc");
+                        route[a] = routes << 1;
+                        route[b] = routes << 1 | 1;
+                        routeCost[routes] = cost[a];
+                        routeDistance[routes++] = distance[a];
+                    }
+                }
+                if (route[a] < 0)
+                    throw new IllegalArgumentException("Arc " + a + " has no reverse arc");
+            }
+        }
+        return new FlightGraph(cities, offset, target, route, routeDistance, routeCost, false);
+    }
+
+    // Throw an exception if v is not a valid city index
+    private void validateVertex(int v) {
+        if (v < 0 || v >= cities.length)
+            throw new IllegalArgumentException("City index " + v + " is not between 0 and " + (cities.length - 1));
+    }
+
+    // Return the number of cities in the network
+    public int V()  {return cities.length;}
+
+    // Return the number of directed arcs (two per direct route)
+    public int E()  {return target.length;}
+
+    // Return the number of direct routes
+    public int routes()     {return cost.length;}
+
+    // Return the name of city v
+    public String city(int v)   {return cities[v];}
+
+    // Return the first arc leaving city v
+    public int begin(int v)     {return offset[v];}
+
+    // Return one past the last arc leaving city v
+    public int end(int v)   {return offset[v + 1];}
+
+    // Return the city that arc a leads to
+    public int target(int a)    {return target[a];}
+
+    // Return arc a's cost
+    public double cost(int a)   {return cost[route[a] >>> 1];}
+
+    // Return arc a's distance
+    public double distance(int a)   {return distance[route[a] >>> 1];}
+
+    // Return the number of the direct route arc a runs along
+    public int route(int a)     {return route[a] >>> 1;}
+
+    // Return true if arc a runs its route backwards (from to() to from())
+    public boolean isReversed(int a)    {return (route[a] & 1) != 0;}
+
+    // Return the arc that runs route r in its own direction (from() to to())
+    public int arcOf(int r)     {return arcs()[r << 1];}
+
+    // Return the city route r starts from
+    public int from(int r)  {return target[arcs()[r << 1 | 1]];}
+
+    // Return the city route r leads to
+    public int to(int r)    {return target[arcs()[r << 1]];}
+
+    // Return the arc that runs the same direct route as arc a in the other direction
+    public int twin(int a)  {return arcs()[route[a] ^ 1];}
+
+    // Return the arc of every route in every direction (indexed like route[]), computing it on first use
+    private int[] arcs() {
+        int[] t = arcs;
+        if (t == null) {
+            t = new int[target.length];
+            for (int a = 0; a < target.length; a++)
+                t[route[a]] = a;
+            arcs = t;
+        }
+        return t;
+    }
+
+    // Return the first arc from v to w (the route added last, if there are several), or -1 if there is none
+    public int arc(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        for (int a = offset[v]; a < offset[v + 1]; a++)
+            if (target[a] == w)
+                return a;
+        return -1;
+    }
+
+    // Return the first arc from v to w, or throw an exception if there is no direct route between them
+    private int routeArc(int v, int w) {
+        int a = arc(v, w);
+        if (a < 0)
+            throw new IllegalArgumentException("There is no direct route between " + cities[v] + " and " + cities[w]);
+        return a;
+    }
+
+    // Return a new version with a direct route between v and w added (listed first at both cities,
+    // as if it were the last line of the route file)
+    public FlightGraph withRoute(int v, int w, double d, double c) {
+        validateVertex(v);
+        validateVertex(w);
+        int V = cities.length;
+        int E = target.length;
+        int r = cost.length;
+        int[] newOffset = new int[V + 1];
+        int[] newTarget = new int[E + 2];
+        int[] newRoute = new int[E + 2];
+
+        // Copy city by city, putting the new arcs in front of the old ones
+        int n = 0;
+        for (int x = 0; x < V; x++) {
+            newOffset[x] = n;
+            if (x == v) {
+                newTarget[n] = w; newRoute[n++] = r << 1;
+            }
+            if (x == w) {
+                newTarget[n] = v; newRoute[n++] = r << 1 | 1;
+            }
+            int length = offset[x + 1] - offset[x];
+            System.arraycopy(target, offset[x], newTarget, n, length);
+            System.arraycopy(route, offset[x], newRoute, n, length);
+            n += length;
+        }
+        newOffset[V] = n;
+        double[] newDistance = Arrays.copyOf(distance, r + 1);
+        double[] newCost = Arrays.copyOf(cost, r + 1);
+        newDistance[r] = d;
+        newCost[r] = c;
+        return new FlightGraph(cities, newOffset, newTarget, newRoute, newDistance, newCost, false);
+    }
+
+    // Return a new version without the direct route between v and w (the one arc(v, w) finds); the routes
+    // after it move down one number
+    public FlightGraph withoutRoute(int v, int w) {
+        int r = route(routeArc(v, w));
+        int V = cities.length;
+        int E = target.length;
+        int[] newOffset = new int[V + 1];
+        int[] newTarget = new int[E - 2];
+        int[] newRoute = new int[E - 2];
+
+        // Copy every arc but the route's two, keeping their order
+        int n = 0;
+        for (int x = 0; x < V; x++) {
+            newOffset[x] = n;
+            for (int i = offset[x]; i < offset[x + 1]; i++) {
+                int s = route[i] >>> 1;
+                if (s == r)
+                    continue;
+                newTarget[n] = target[i];
+                newRoute[n++] = s > r ? route[i] - 2 : route[i];
+            }
+        }
+        newOffset[V] = n;
+        double[] newDistance = new double[cost.length - 1];
+        double[] newCost = new double[cost.length - 1];
+        System.arraycopy(distance, 0, newDistance, 0, r);
+        System.arraycopy(distance, r + 1, newDistance, r, cost.length - r - 1);
+        System.arraycopy(cost, 0, newCost, 0, r);
+        System.arraycopy(cost, r + 1, newCost, r, cost.length - r - 1);
+        return new FlightGraph(cities, newOffset, newTarget, newRoute, newDistance, newCost, false);
+    }
+
+    // Return a new version where the direct route between v and w (the one arc(v, w) finds) costs c;
+    // only the cost array is copied, the rest is shared with this version
+    public FlightGraph withCost(int v, int w, double c) {
+        int r = route(routeArc(v, w));
+        double[] newCost = cost.clone();
+        newCost[r] = c;
+        return new FlightGraph(cities, offset, target, route, distance, newCost, false);
+    }
+
+    // Return arc a (leaving city v) as an Edge object, for display purposes only
+    public Edge edge(int v, int a) {
+        int w = target[a];
+        return new Edge(v, w, distance(a), cost(a), cities[v], cities[w]);
+    }
+
+    // Return the arcs leaving v as an Iterable of Edge objects (created on demand)
+    public Iterable<Edge> adj(final int v) {
+        validateVertex(v);
+        return new Iterable<Edge>() {
+            public Iterator<Edge> iterator() {
+                return new Iterator<Edge>() {
+                    private int a = offset[v];
+
+                    public boolean hasNext()  { return a < offset[v + 1];                }
+                    public void remove()      { throw new UnsupportedOperationException(); }
+
+                    public Edge next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return edge(v, a++);
+                    }
+                };
+            }
+        };
+    }
+}
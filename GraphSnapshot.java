@@ -0,0 +1,209 @@
+/*
+ Versioned, checksummed binary snapshot of a FlightGraph.
+ A snapshot holds the city table, the CSR arrays and the route records exactly as FlightGraph
+ keeps them in memory, so loading one is a memory-map plus bulk array copies (no text parsing and no
+ per-route objects). Snapshots are written offline and shipped next to the route file:
+   To CREATE: java GraphSnapshot global.txt global.snap
+   To RUN:    java Airline global.snap
+ Layout (little-endian):
+   int magic, int version, int V, int routes
+   V city names (int byte length + UTF-8 bytes)
+   int offset[V + 1], int target[2 * routes], int route[2 * routes] (route number << 1 | direction),
+   double distance[routes], double cost[routes]
+   long CRC32 of every preceding byte
+ Version 1 snapshots (int arcs in the header, no route[], a distance and a cost on every arc) are
+ still read; their arcs are paired into routes on load.
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class GraphSnapshot {
+    public static final int MAGIC = 0x53545241;     // "ARTS" when read as little-endian bytes
+    public static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16;
+
+    // Static utility class, not meant to be instantiated
+    private GraphSnapshot() { }
+
+    // Return true if file starts with the snapshot magic number
+    public static boolean isSnapshot(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (head.hasRemaining() && channel.read(head) >= 0) { }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        }
+    }
+
+    // Write graph to file as a snapshot
+    public static void write(FlightGraph graph, String file) throws IOException {
+        int V = graph.V();
+        int routes = graph.routes();
+        int arcs = graph.E();
+        byte[][] names = new byte[V][];
+        long size = HEADER_BYTES + 4L * (V + 1) + 8L * arcs + 16L * routes + 8;
+        for (int v = 0; v < V; v++) {
+            names[v] = graph.city(v).getBytes(StandardCharsets.UTF_8);
+            size += 4 + names[v].length;
+        }
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Network is too large for a single snapshot file (" + size + " bytes)");
+
+        Path path = Paths.get(file);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(routes);
+            for (byte[] name : names)
+                out.putInt(name.length).put(name);
+
+            // Arrays go through typed views, then the position skips past what each view wrote
+            IntBuffer ints = out.asIntBuffer();
+            for (int v = 0; v < V; v++)
+                ints.put(graph.begin(v));
+            ints.put(arcs);
+            for (int a = 0; a < arcs; a++)
+                ints.put(graph.target(a));
+            for (int a = 0; a < arcs; a++)
+                ints.put(graph.route(a) << 1 | (graph.isReversed(a) ? 1 : 0));
+            out.position(out.position() + 4 * ints.position());
+
+            DoubleBuffer doubles = out.asDoubleBuffer();
+            for (int r = 0; r < routes; r++)
+                doubles.put(graph.distance(graph.arcOf(r)));
+            for (int r = 0; r < routes; r++)
+                doubles.put(graph.cost(graph.arcOf(r)));
+            out.position(out.position() + 8 * doubles.position());
+
+            out.putLong(checksum(out, out.position()));
+            out.force();
+        }
+    }
+
+    // Read a snapshot written by write() back into a FlightGraph
+    public static FlightGraph read(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8 || size > Integer.MAX_VALUE)
+                throw new IOException(file + ": not a route snapshot (unexpected size " + size + ")");
+
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC)
+                throw new IOException(file + ": not a route snapshot (bad magic number)");
+            int version = in.getInt();
+            if (version != VERSION && version != 1)
+                throw new IOException(file + ": unsupported snapshot version " + version + " (expected " + VERSION + ")");
+
+            int end = (int) size - 8;
+            long stored = in.getLong(end);
+            if (stored != checksum(in, end))
+                throw new IOException(file + ": snapshot checksum mismatch (file is corrupt or truncated)");
+
+            try {
+                return version == 1 ? readVersion1(in, end) : readBody(in, end);
+            } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+                throw new IOException(file + ": corrupt snapshot (" + e + ")", e);
+            }
+        }
+    }
+
+    // Read the city table, CSR arrays and route records that follow the magic number and version
+    private static FlightGraph readBody(ByteBuffer in, int end) {
+        int V = in.getInt();
+        int routes = in.getInt();
+        if (V < 0 || routes < 0 || routes > Integer.MAX_VALUE / 2)
+            throw new IllegalArgumentException("negative city or route count");
+        String[] cities = readCities(in, V);
+
+        int[] offset = new int[V + 1];
+        int[] target = new int[2 * routes];
+        int[] route = new int[2 * routes];
+        IntBuffer ints = in.asIntBuffer();
+        ints.get(offset).get(target).get(route);
+        in.position(in.position() + 4 * ints.position());
+
+        double[] distance = new double[routes];
+        double[] cost = new double[routes];
+        DoubleBuffer doubles = in.asDoubleBuffer();
+        doubles.get(distance).get(cost);
+        in.position(in.position() + 8 * doubles.position());
+        if (in.position() != end)
+            throw new IllegalArgumentException("sections do not match the header");
+
+        return new FlightGraph(cities, offset, target, route, distance, cost);
+    }
+
+    // Read the body of a version 1 snapshot (a distance and a cost on every arc)
+    private static FlightGraph readVersion1(ByteBuffer in, int end) {
+        int V = in.getInt();
+        int arcs = in.getInt();
+        if (V < 0 || arcs < 0)
+            throw new IllegalArgumentException("negative city or arc count");
+        String[] cities = readCities(in, V);
+
+        int[] offset = new int[V + 1];
+        int[] target = new int[arcs];
+        IntBuffer ints = in.asIntBuffer();
+        ints.get(offset).get(target);
+        in.position(in.position() + 4 * ints.position());
+
+        double[] distance = new double[arcs];
+        double[] cost = new double[arcs];
+        DoubleBuffer doubles = in.asDoubleBuffer();
+        doubles.get(distance).get(cost);
+        in.position(in.position() + 8 * doubles.position());
+        if (in.position() != end)
+            throw new IllegalArgumentException("sections do not match the header");
+
+        return FlightGraph.fromArcs(cities, offset, target, distance, cost);
+    }
+
+    // Read V city names
+    private static String[] readCities(ByteBuffer in, int V) {
+        String[] cities = new String[V];
+        for (int v = 0; v < V; v++) {
+            byte[] name = new byte[in.getInt()];
+            in.get(name);
+            cities[v] = new String(name, StandardCharsets.UTF_8);
+        }
+        return cities;
+    }
+
+    // Return the CRC32 of the first length bytes of buffer
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        view.position(0).limit(length);
+        crc.update(view);
+        return crc.getValue();
+    }
+
+    // Client: convert a text route file into a snapshot (java GraphSnapshot routes.txt routes.snap)
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        FlightGraph graph = RouteFileReader.read(args[0]);
+        long parsed = System.nanoTime();
+        write(graph, args[1]);
+        long written = System.nanoTime();
+        read(args[1]);
+        long loaded = System.nanoTime();
+
+        System.out.printf("%s -> %s: %d cities, %d direct routes%n", args[0], args[1], graph.V(), graph.routes());
+        System.out.printf("text parse %.1f ms, snapshot write %.1f ms, snapshot load %.1f ms%n",
+                          (parsed - start) / 1e6, (written - parsed) / 1e6, (loaded - written) / 1e6);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ An indexed priority queue of double keys, implemented as a binary heap over int arrays.
+ Each index in [0, maxN) can be inserted once with a key, and its key can later be
+ decreased; delMin() removes and returns the index with the smallest key.
+ The insert, delMin and decreaseKey operations take logarithmic time.
+ For additional documentation, see https://algs4.cs.princeton.edu/24pq Section 2.4 of
+ Algorithms, 4th Edition by Robert Sedgewick and Kevin Wayne.
+ Modified to use primitive double keys (no boxing) By: Caleb Tsai
+ */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class IndexMinPQ {
+    private int n;              // number of elements on PQ
+    private int[] pq;           // binary heap using 1-based indexing
+    private int[] qp;           // inverse of pq: qp[pq[i]] = pq[qp[i]] = i, -1 if absent
+    private double[] keys;      // keys[i] = priority of i
+
+    // Creates an empty indexed priority queue with indices between 0 and maxN - 1
+    public IndexMinPQ(int maxN) {
+        pq = new int[maxN + 1];
+        qp = new int[maxN];
+        keys = new double[maxN];
+        Arrays.fill(qp, -1);
+    }
+
+    // Checks if the priority queue is empty
+    public boolean isEmpty()    {return n == 0;}
+
+    // Checks if index i is on the priority queue
+    public boolean contains(int i)  {return qp[i] != -1;}
+
+    // Returns the number of keys on the priority queue
+    public int size()   {return n;}
+
+    // Associates key with index i
+    public void insert(int i, double key) {
+        if (contains(i)) throw new IllegalArgumentException("index is already in the priority queue");
+        n++;
+        qp[i] = n;
+        pq[n] = i;
+        keys[i] = key;
+        swim(n);
+    }
+
+    // Returns the key associated with index i
+    public double keyOf(int i) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        return keys[i];
+    }
+
+    // Decreases the key associated with index i to the specified value
+    public void decreaseKey(int i, double key) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        if (key > keys[i]) throw new IllegalArgumentException("key would not be decreased");
+        keys[i] = key;
+        swim(qp[i]);
+    }
+
+    // Inserts index i, or decreases its key if it is already present and key is smaller
+    public void insertOrDecrease(int i, double key) {
+        if (!contains(i))
+            insert(i, key);
+        else if (key < keys[i])
+            decreaseKey(i, key);
+    }
+
+    // Removes a minimum key and returns its associated index
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        int min = pq[1];
+        exch(1, n--);
+        sink(1);
+        qp[min] = -1;
+        return min;
+    }
+
+    // Removes every index so the queue can be reused
+    public void clear() {
+        for (int i = 1; i <= n; i++)
+            qp[pq[i]] = -1;
+        n = 0;
+    }
+
+    // Helper functions for compares and swaps
+    private boolean greater(int i, int j) {
+        return keys[pq[i]] > keys[pq[j]];
+    }
+
+    private void exch(int i, int j) {
+        int swap = pq[i];
+        pq[i] = pq[j];
+        pq[j] = swap;
+        qp[pq[i]] = i;
+        qp[pq[j]] = j;
+    }
+
+    // Heap helper functions
+    private void swim(int k) {
+        while (k > 1 && greater(k/2, k)) {
+            exch(k, k/2);
+            k = k/2;
+        }
+    }
+
+    private void sink(int k) {
+        while (2*k <= n) {
+            int j = 2*k;
+            if (j < n && greater(j, j+1)) j++;
+            if (!greater(k, j)) break;
+            exch(k, j);
+            k = j;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ Minimal JSON reader and writer helpers for the batch and server front ends.
+ parse() turns one JSON text into plain Java values:
+   object -> LinkedHashMap<String, Object> (keys in input order), array -> ArrayList<Object>,
+   string -> String, number -> Double, true/false -> Boolean, null -> null
+ quote() and number() write values back out. There is no dependency on a JSON library, so the
+ program still compiles with a bare javac.
+ Author: Caleb Tsai
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+public class Json {
+    // Attributes of a parse (the text and the position of the next character)
+    private final String text;
+    private int pos;
+
+    // Thrown when the text is not valid JSON, with the 1-based column of the offending character
+    public static class FormatException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+        private final int column;
+
+        public FormatException(int column, String message) {
+            super("column " + column + ": " + message);
+            this.column = column;
+        }
+
+        // Return the 1-based column of the offending character
+        public int getColumn()  {return column;}
+    }
+
+    // Constructor: Start parsing text (use parse() instead)
+    private Json(String text) {
+        this.text = text;
+    }
+
+    // Return the value of the JSON text
+    public static Object parse(String text) {
+        Json parser = new Json(text);
+        Object value = parser.value();
+        parser.skipSpace();
+        if (parser.pos < text.length())
+            throw parser.error("Unexpected text after the value");
+        return value;
+    }
+
+    // Parse the value starting at pos
+    private Object value() {
+        skipSpace();
+        if (pos >= text.length())
+            throw error("Unexpected end of text");
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{':   return object();
+            case '[':   return array();
+            case '"':   return string();
+            case 't':   return literal("true", Boolean.TRUE);
+            case 'f':   return literal("false", Boolean.FALSE);
+            case 'n':   return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9'))
+                    return number();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    // Parse an object
+    private LinkedHashMap<String, Object> object() {
+        LinkedHashMap<String, Object> object = new LinkedHashMap<String, Object>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            return object;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"')
+                throw error("Expected a field name");
+            String name = string();
+            skipSpace();
+            expect(':');
+            object.put(name, value());
+            skipSpace();
+            if (peek() == ',')
+                pos++;
+            else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    // Parse an array
+    private ArrayList<Object> array() {
+        ArrayList<Object> array = new ArrayList<Object>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            skipSpace();
+            if (peek() == ',')
+                pos++;
+            else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    // Parse a string, including its escapes
+    private String string() {
+        StringBuilder s = new StringBuilder();
+        pos++;
+        while (true) {
+            if (pos >= text.length())
+                throw error("Unterminated string");
+            char c = text.charAt(pos++);
+            if (c == '"')
+                return s.toString();
+            if (c != '\\') {
+                s.append(c);
+                continue;
+            }
+            if (pos >= text.length())
+                throw error("Unterminated string");
+            char e = text.charAt(pos++);
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':   s.append(e); break;
+                case 'b':   s.append('\b'); break;
+                case 'f':   s.append('\f'); break;
+                case 'n':   s.append('\n'); break;
+                case 'r':   s.append('\r'); break;
+                case 't':   s.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > text.length())
+                        throw error("Incomplete unicode escape");
+                    try {
+                        s.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    pos--;
+                    throw error("Invalid escape '\\" + e + "'");
+            }
+        }
+    }
+
+    // Parse a number
+    private Double number() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0)
+            pos++;
+        try {
+            return Double.valueOf(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("Invalid number");
+        }
+    }
+
+    // Parse the literal word, returning value
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, pos))
+            throw error("Unexpected word");
+        pos += word.length();
+        return value;
+    }
+
+    // Parsing helper functions
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+
+    private void expect(char c) {
+        if (peek() != c)
+            throw error("Expected '" + c + "'");
+        pos++;
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+            pos++;
+    }
+
+    private FormatException error(String message) {
+        return new FormatException(pos + 1, message);
+    }
+
+    // Append s to out as a JSON string literal
+    public static StringBuilder quote(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':   out.append("\\\""); break;
+                case '\\':  out.append("\\\\"); break;
+                case '\n':  out.append("\\n"); break;
+                case '\r':  out.append("\\r"); break;
+                case '\t':  out.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        out.append(String.format("\\u%04x", (int) c));
+                    else
+                        out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    // Append x to out as a JSON number (integral values without a fraction; infinities and NaN as null)
+    public static StringBuilder number(StringBuilder out, double x) {
+        if (Double.isInfinite(x) || Double.isNaN(x))
+            return out.append("null");
+        if (x == Math.rint(x) && Math.abs(x) < 1e15)
+            return out.append((long) x);
+        return out.append(x);
+    }
+}
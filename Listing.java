@@ -0,0 +1,175 @@
+/*
+ Streams the airline's listings (cities served, direct routes, found routes) straight into a
+ Writer, one line at a time, so printing a large network starts at once and never builds the
+ whole listing in memory. Wrap the destination in a BufferedWriter and flush when done.
+ Formats:
+   TEXT - the menu's own layout
+   CSV  - a header row, then one row per item
+   JSON - JSON lines, one object per item
+ offset and limit page through the items (header lines are always written).
+ To RUN: java Listing global.txt cities|direct [text|csv|json] [offset] [limit]
+ Author: Caleb Tsai
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+public class Listing {
+    // The formats a listing can be written in
+    public enum Format {TEXT, CSV, JSON}
+
+    // Attributes of a listing (destination, format, page)
+    private final Writer out;
+    private final Format format;
+    private final long offset;
+    private final long limit;
+    private final StringBuilder line = new StringBuilder(128);
+
+    // Constructor: Write every item to out in format
+    public Listing(Writer out, Format format) {
+        this(out, format, 0, Long.MAX_VALUE);
+    }
+
+    // Constructor: Write items offset to offset + limit - 1 to out in format
+    public Listing(Writer out, Format format, long offset, long limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("offset and limit cannot be negative");
+        this.out = out;
+        this.format = format;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    // Write the cities of graph; return the number of cities written
+    public long cities(FlightGraph graph) throws IOException {
+        if (format == Format.TEXT)
+            out.write("Cities Served:\n");
+        else if (format == Format.CSV)
+            out.write("id,city\n");
+
+        long end = end(graph.V());
+        for (long v = offset; v < end; v++) {
+            String city = graph.city((int) v);
+            line.setLength(0);
+            if (format == Format.TEXT)
+                line.append("    ").append(city);
+            else if (format == Format.CSV)
+                csv(line.append(v).append(','), city);
+            else
+                Json.quote(line.append("{\"id\":").append(v).append(",\"city\":"), city).append('}');
+            out.append(line.append('\n'));
+        }
+        return Math.max(0, end - offset);
+    }
+
+    // Write the direct routes of graph, once each in route file order (as Option 1B lists them);
+    // return the number of routes written
+    public long directRoutes(FlightGraph graph) throws IOException {
+        if (format == Format.TEXT) {
+            out.write("Direct Routes:\n");
+            out.write(String.format("%-15s %-15s %-15s %-15s", "From (City)", "To (City)", "Cost ($)", "Distance (Miles)") + "\n");
+            out.write(String.format("%-15s %-15s %-15s %-15s", "----------", "----------", "----------", "----------") + "\n");
+        }
+        else if (format == Format.CSV)
+            out.write("from,to,cost,distance\n");
+
+        // Each route is listed once, in its own direction, in route number (route file) order
+        long end = end(graph.routes());
+        for (long r = offset; r < end; r++) {
+            int route = (int) r;
+            int v = graph.from(route);
+            int w = graph.to(route);
+            int arc = graph.arcOf(route);
+            line.setLength(0);
+            if (format == Format.TEXT)
+                line.append(graph.edge(v, arc).toString());
+            else if (format == Format.CSV) {
+                csv(line, graph.city(v)).append(',');
+                csv(line, graph.city(w)).append(',');
+                Json.number(line, graph.cost(arc)).append(',');
+                Json.number(line, graph.distance(arc));
+            }
+            else {
+                Json.quote(line.append("{\"from\":"), graph.city(v)).append(",\"to\":");
+                Json.quote(line, graph.city(w)).append(",\"cost\":");
+                Json.number(line, graph.cost(arc)).append(",\"distance\":");
+                Json.number(line, graph.distance(arc)).append('}');
+            }
+            out.append(line.append('\n'));
+        }
+        return Math.max(0, end - offset);
+    }
+
+    // Write routes (in the given order); return the number of routes written
+    public long routes(List<Route> routes) throws IOException {
+        if (format == Format.CSV)
+            out.write("rank,cost,distance,hops,cities\n");
+
+        long end = end(routes.size());
+        for (long i = offset; i < end; i++) {
+            Route r = routes.get((int) i);
+            line.setLength(0);
+
+            // TEXT: the menu's layout, one blank line after each route
+            if (format == Format.TEXT)
+                line.append(r.toString());
+            else if (format == Format.CSV) {
+                line.append(i + 1).append(',');
+                Json.number(line, r.getCost()).append(',');
+                Json.number(line, r.getDistance()).append(',').append(r.getHops()).append(',');
+                StringBuilder cities = new StringBuilder();
+                for (int j = 0; j <= r.getHops(); j++)
+                    cities.append(j > 0 ? ">" : "").append(r.getCityName(j));
+                csv(line, cities.toString());
+            }
+            else
+                json(line, r);
+            out.append(line.append('\n'));
+        }
+        return Math.max(0, end - offset);
+    }
+
+    // Return the index after the last item of the page, for a listing of size items
+    private long end(long size) {
+        return Math.min(size, offset + Math.min(limit, Long.MAX_VALUE - offset));
+    }
+
+    // Append s to out as a CSV field (quoted only when it has to be)
+    private static StringBuilder csv(StringBuilder out, String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+            return out.append(s);
+        return out.append('"').append(s.replace("\"", "\"\"")).append('"');
+    }
+
+    // Append route r to json as an object: {"cost":..,"distance":..,"hops":..,"cities":[..]}
+    public static StringBuilder json(StringBuilder json, Route r) {
+        json.append("{\"cost\":");
+        Json.number(json, r.getCost()).append(",\"distance\":");
+        Json.number(json, r.getDistance()).append(",\"hops\":").append(r.getHops()).append(",\"cities\":[");
+        for (int j = 0; j <= r.getHops(); j++) {
+            if (j > 0)
+                json.append(',');
+            Json.quote(json, r.getCityName(j));
+        }
+        return json.append("]}");
+    }
+
+    // Test client: stream a listing of a network to standard output
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = GraphSnapshot.isSnapshot(args[0]) ? GraphSnapshot.read(args[0]) : RouteFileReader.read(args[0]);
+        Format format = args.length > 2 ? Format.valueOf(args[2].toUpperCase()) : Format.TEXT;
+        long offset = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        long limit = args.length > 4 ? Long.parseLong(args[4]) : Long.MAX_VALUE;
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        Listing listing = new Listing(out, format, offset, limit);
+        if (args[1].equals("cities"))
+            listing.cities(graph);
+        else
+            listing.directRoutes(graph);
+        out.flush();
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ Seeded generator of synthetic airline networks for scale testing, written in the same
+ format as pennsylvania.txt and global.txt (V, V city names, then "v w distance cost" lines).
+ Cities are scattered uniformly over a square map (side in miles); routes follow a topology:
+   geometric - every city is linked to its k nearest cities (a random geometric network)
+   hub       - a few hub cities are linked to their nearest hubs; every other city is linked
+               to its k nearest hubs (hub-and-spoke)
+ k is drawn per city from a degree distribution with the requested mean:
+   fixed (always the mean), poisson, or powerlaw (Pareto tail, a few very connected cities)
+ (k counts the links a city starts; cities also get the links others start towards them, so
+ the final mean degree is somewhat higher)
+ Distances are the straight-line miles between the cities. Fares grow with distance
+   cost = (base fare + per-mile rate * distance) * noise
+ with random noise around 1, trunk routes between hubs being cheaper per mile and spoke
+ routes dearer. Links are deduplicated, and isolated groups of cities are joined to the
+ largest group, so every city can reach every other one. The same arguments and seed
+ always give the same file.
+ To RUN: java NetworkGenerator 100000 big.txt [--topology geometric|hub] [--degree 6]
+         [--degrees fixed|poisson|powerlaw] [--hubs 1000] [--size 2500] [--seed 1] [--snapshot big.snap]
+ Author: Caleb Tsai
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+public class NetworkGenerator {
+    private static final double BASE_FARE = 49.0;
+    private static final double PER_MILE = 0.11;
+    private static final double TRUNK_DISCOUNT = 0.75;
+    private static final double SPOKE_PREMIUM = 1.15;
+    private static final String[] SYLLABLES = {
+        "ba", "ka", "lo", "ri", "ton", "ven", "mar", "sel", "do", "na", "bur", "gen", "ta", "ro", "mi", "lan",
+        "ver", "sa", "dale", "ford", "ha", "wick", "ko", "li", "za", "pe", "nor", "ston", "vi", "ra", "bel", "mont"
+    };
+
+    // The shapes a generated network can take
+    public enum Topology {GEOMETRIC, HUB}
+
+    // The distributions the number of links per city can follow
+    public enum Degrees {FIXED, POISSON, POWERLAW}
+
+    // Attributes of a generator (parameters, the random source, city positions, links found so far)
+    private final int V;
+    private final Topology topology;
+    private final double degree;
+    private final Degrees degrees;
+    private final int hubs;
+    private final double size;
+    private final Random random;
+    private double[] x;
+    private double[] y;
+    private boolean[] hub;
+    private long[] links = new long[16];
+    private int n;
+
+    // Constructor: Prepare a network of V cities (hubs only matters for the hub topology)
+    public NetworkGenerator(int V, Topology topology, double degree, Degrees degrees, int hubs, double size, long seed) {
+        if (V < 2)
+            throw new IllegalArgumentException("A network needs at least 2 cities");
+        if (degree < 1 || size <= 0)
+            throw new IllegalArgumentException("The mean degree must be at least 1 and the map size positive");
+        if (topology == Topology.HUB && (hubs < 1 || hubs > V))
+            throw new IllegalArgumentException("The number of hubs must be between 1 and the number of cities");
+        this.V = V;
+        this.topology = topology;
+        this.degree = degree;
+        this.degrees = degrees;
+        this.hubs = hubs;
+        this.size = size;
+        this.random = new Random(seed);
+    }
+
+    // Return the generated network
+    public FlightGraph generate() {
+        x = new double[V];
+        y = new double[V];
+        hub = new boolean[V];
+        for (int v = 0; v < V; v++) {
+            x[v] = random.nextDouble() * size;
+            y[v] = random.nextDouble() * size;
+        }
+
+        int[] all = new int[V];
+        for (int v = 0; v < V; v++)
+            all[v] = v;
+        if (topology == Topology.GEOMETRIC) {
+            Grid grid = new Grid(all);
+            for (int v = 0; v < V; v++)
+                for (int w : grid.nearest(x[v], y[v], sampleDegree(), v))
+                    link(v, w);
+        }
+        else {
+            // The first hubs cities of a random permutation become the hubs
+            for (int i = V - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = all[i];
+                all[i] = all[j];
+                all[j] = swap;
+            }
+            int[] hubCities = Arrays.copyOf(all, hubs);
+            for (int h : hubCities)
+                hub[h] = true;
+
+            Grid grid = new Grid(hubCities);
+            int trunk = Math.min(hubs - 1, (int) Math.ceil(2 * degree));
+            for (int h : hubCities)
+                for (int w : grid.nearest(x[h], y[h], trunk, h))
+                    link(h, w);
+            for (int v = 0; v < V; v++)
+                if (!hub[v])
+                    for (int w : grid.nearest(x[v], y[v], Math.min(hubs, sampleDegree()), v))
+                        link(v, w);
+        }
+
+        // Deduplicate (a link found from both ends is stored twice), then join any isolated groups
+        Arrays.sort(links, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++)
+            if (unique == 0 || links[i] != links[unique - 1])
+                links[unique++] = links[i];
+        n = unique;
+        connect();
+
+        String[] cities = new String[V];
+        int[] v = new int[n];
+        int[] w = new int[n];
+        double[] distance = new double[n];
+        double[] cost = new double[n];
+        for (int v0 = 0; v0 < V; v0++)
+            cities[v0] = name(v0);
+        for (int i = 0; i < n; i++) {
+            v[i] = (int) (links[i] >>> 32);
+            w[i] = (int) links[i];
+            distance[i] = Math.max(1, Math.round(Math.hypot(x[v[i]] - x[w[i]], y[v[i]] - y[w[i]])));
+            cost[i] = fare(distance[i], hub[v[i]] && hub[w[i]], hub[v[i]] != hub[w[i]]);
+        }
+        return new FlightGraph(cities, v, w, distance, cost, n);
+    }
+
+    // Return the number of links of the next city under the degree distribution (at least 1)
+    private int sampleDegree() {
+        switch (degrees) {
+            case FIXED:
+                return (int) Math.round(degree);
+            case POISSON: {
+                // Knuth's method, fine for the small means used here
+                double limit = Math.exp(-degree);
+                double p = random.nextDouble();
+                int k = 0;
+                while (p > limit) {
+                    k++;
+                    p *= random.nextDouble();
+                }
+                return Math.max(1, k);
+            }
+            default: {
+                // Pareto with shape 2.5, scaled so the mean is degree; capped to keep hubs plausible
+                double shape = 2.5;
+                double min = degree * (shape - 1) / shape;
+                double k = min / Math.pow(1.0 - random.nextDouble(), 1.0 / shape);
+                return (int) Math.max(1, Math.min(Math.round(k), 50 * degree));
+            }
+        }
+    }
+
+    // Return the fare of a route of distance miles (trunk: hub to hub, spoke: hub to other city)
+    private double fare(double distance, boolean trunk, boolean spoke) {
+        double perMile = PER_MILE * (trunk ? TRUNK_DISCOUNT : 1.0) * (spoke ? SPOKE_PREMIUM : 1.0);
+        double noise = Math.exp(0.15 * random.nextGaussian());
+        return Math.round((BASE_FARE + perMile * distance) * noise * 100) / 100.0;
+    }
+
+    // Record a link between v and w (smaller city first, so duplicates sort next to each other)
+    private void link(int v, int w) {
+        if (v == w)
+            return;
+        if (n == links.length)
+            links = Arrays.copyOf(links, 2 * n);
+        links[n++] = ((long) Math.min(v, w) << 32) | Math.max(v, w);
+    }
+
+    // Join every group of cities that cannot reach the largest group to its nearest city in that group
+    private void connect() {
+        int[] parent = new int[V];
+        for (int v = 0; v < V; v++)
+            parent[v] = v;
+        for (int i = 0; i < n; i++)
+            union(parent, (int) (links[i] >>> 32), (int) links[i]);
+
+        int[] groupSize = new int[V];
+        int largest = 0;
+        for (int v = 0; v < V; v++)
+            if (++groupSize[find(parent, v)] > groupSize[find(parent, largest)])
+                largest = v;
+        int main = find(parent, largest);
+        int count = 0;
+        for (int v = 0; v < V; v++)
+            if (find(parent, v) == main)
+                count++;
+        if (count == V)
+            return;
+
+        int[] members = new int[count];
+        count = 0;
+        for (int v = 0; v < V; v++)
+            if (find(parent, v) == main)
+                members[count++] = v;
+        Grid grid = new Grid(members);
+
+        // One link per stray group, from its first city
+        boolean[] joined = new boolean[V];
+        for (int v = 0; v < V; v++) {
+            int root = find(parent, v);
+            if (root != main && !joined[root]) {
+                joined[root] = true;
+                link(v, grid.nearest(x[v], y[v], 1, v)[0]);
+            }
+        }
+        Arrays.sort(links, 0, n);
+    }
+
+    // Union-find helper functions (path halving)
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static void union(int[] parent, int v, int w) {
+        parent[find(parent, v)] = find(parent, w);
+    }
+
+    // Return the unique name of city v (its index written with syllables as digits)
+    private static String name(int v) {
+        StringBuilder name = new StringBuilder();
+        int k = SYLLABLES.length;
+        long i = v + 1;     // bijective numbering: every index gets a different syllable string
+        while (i > 0) {
+            i--;
+            name.append(SYLLABLES[(int) (i % k)]);
+            i /= k;
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    // Uniform grid over a set of cities, answering k-nearest-city queries by scanning rings of cells
+    private class Grid {
+        private final int side;
+        private final double cell;
+        private final int[] start;
+        private final int[] cities;
+
+        Grid(int[] members) {
+            side = Math.max(1, (int) Math.sqrt(members.length / 2.0));
+            cell = size / side;
+            start = new int[side * side + 1];
+            cities = new int[members.length];
+            for (int v : members)
+                start[cellOf(v) + 1]++;
+            for (int c = 0; c < side * side; c++)
+                start[c + 1] += start[c];
+            int[] next = Arrays.copyOf(start, side * side);
+            for (int v : members)
+                cities[next[cellOf(v)]++] = v;
+        }
+
+        private int cellOf(int v) {
+            return row(y[v]) * side + row(x[v]);
+        }
+
+        private int row(double coordinate) {
+            return Math.min(side - 1, (int) (coordinate / cell));
+        }
+
+        // Return up to k grid cities nearest to (px, py), other than self, nearest first
+        int[] nearest(double px, double py, int k, int self) {
+            int[] best = new int[k];
+            double[] bestDistance = new double[k];
+            int found = 0;
+            int cx = row(px);
+            int cy = row(py);
+            for (int r = 0; r < side; r++) {
+                // Cells at ring r are at least (r - 1) * cell away, so stop once the k-th best is closer
+                if (found == k && (r - 1) * cell > bestDistance[k - 1])
+                    break;
+                for (int gy = cy - r; gy <= cy + r; gy++) {
+                    if (gy < 0 || gy >= side)
+                        continue;
+                    for (int gx = cx - r; gx <= cx + r; gx++) {
+                        if (gx < 0 || gx >= side || (Math.abs(gy - cy) != r && Math.abs(gx - cx) != r))
+                            continue;
+                        int c = gy * side + gx;
+                        for (int i = start[c]; i < start[c + 1]; i++) {
+                            int w = cities[i];
+                            if (w == self)
+                                continue;
+                            double d = Math.hypot(x[w] - px, y[w] - py);
+                            if (found == k && d >= bestDistance[k - 1])
+                                continue;
+
+                            // Insertion into the sorted best list
+                            int j = found < k ? found++ : k - 1;
+                            while (j > 0 && bestDistance[j - 1] > d) {
+                                best[j] = best[j - 1];
+                                bestDistance[j] = bestDistance[j - 1];
+                                j--;
+                            }
+                            best[j] = w;
+                            bestDistance[j] = d;
+                        }
+                    }
+                }
+            }
+            return Arrays.copyOf(best, found);
+        }
+    }
+
+    // Write graph as a route file (V, city names, one "v w distance cost" line per route)
+    public static void write(FlightGraph graph, String file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            out.write(Integer.toString(graph.V()));
+            out.write('\n');
+            for (int v = 0; v < graph.V(); v++) {
+                out.write(graph.city(v));
+                out.write('\n');
+            }
+
+            // Every route is stored as two arcs; write it once, from its smaller city
+            StringBuilder line = new StringBuilder(48);
+            for (int v = 0; v < graph.V(); v++) {
+                for (int a = graph.begin(v); a < graph.end(v); a++) {
+                    int w = graph.target(a);
+                    if (w < v)
+                        continue;
+                    long cents = Math.round(graph.cost(a) * 100);
+                    line.setLength(0);
+                    line.append(v).append(' ').append(w).append(' ').append(Math.round(graph.distance(a))).append(' ')
+                        .append(cents / 100).append('.').append((char) ('0' + cents % 100 / 10)).append((char) ('0' + cents % 10))
+                        .append('\n');
+                    out.append(line);
+                }
+            }
+        }
+    }
+
+    // Generator client
+    public static void main(String[] args) throws IOException {
+        int V = Integer.parseInt(args[0]);
+        String file = args[1];
+        Topology topology = Topology.GEOMETRIC;
+        Degrees degrees = Degrees.POISSON;
+        double degree = 6;
+        int hubs = -1;
+        double size = 2500;
+        long seed = 1;
+        String snapshot = null;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--topology":  topology = Topology.valueOf(args[++i].toUpperCase()); break;
+                case "--degree":    degree = Double.parseDouble(args[++i]); break;
+                case "--degrees":   degrees = Degrees.valueOf(args[++i].toUpperCase()); break;
+                case "--hubs":      hubs = Integer.parseInt(args[++i]); break;
+                case "--size":      size = Double.parseDouble(args[++i]); break;
+                case "--seed":      seed = Long.parseLong(args[++i]); break;
+                case "--snapshot":  snapshot = args[++i]; break;
+                default:            throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (hubs < 0)
+            hubs = Math.max(1, Math.min(V, (int) Math.sqrt(V)));
+
+        long start = System.nanoTime();
+        FlightGraph graph = new NetworkGenerator(V, topology, degree, degrees, hubs, size, seed).generate();
+        long generated = System.nanoTime();
+        write(graph, file);
+        if (snapshot != null)
+            GraphSnapshot.write(graph, snapshot);
+
+        // Report the degree spread
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int v = 0; v < graph.V(); v++) {
+            min = Math.min(min, graph.end(v) - graph.begin(v));
+            max = Math.max(max, graph.end(v) - graph.begin(v));
+        }
+        System.out.printf("%,d cities, %,d routes (degree min %d, mean %.2f, max %d): generated in %.2f s, written in %.2f s%n",
+                          graph.V(), graph.routes(), min, (double) graph.E() / graph.V(), max,
+                          (generated - start) / 1e9, (System.nanoTime() - generated) / 1e9);
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ Parallel version of the RouteEnumerator search using fork/join.
+ The search tree is split on the first hop out of the source city (and on the second hop
+ as well when the source has too few first hops to keep every worker busy). Each subtree
+ runs as its own ForkJoinTask with a private RouteEnumerator (its own marked array and
+ path stack), and the per-subtree results are concatenated in subtree order, so the final
+ list is identical, element for element, to a sequential enumeration.
+ SearchLimits are shared by every subtree: the deadline and a cancellation stop them all, and
+ with a cap on the routes each subtree stops after that many, so the concatenation cut to the
+ cap is still exactly the first routes of the sequential search.
+ routes() collects the routes into a RouteSet instead: each subtree fills a set of its own and
+ the sets are joined in subtree order.
+ To MEASURE: java ParallelRouteSearch global.txt Berlin Sydney 20000 8
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelRouteSearch {
+    // Subtrees wanted per worker before the search is split on the second hop as well
+    private static final int TASKS_PER_WORKER = 4;
+
+    // Turns a route found by the search into a result, or null to drop it (called from several threads)
+    public interface RouteMapper<T> {
+        T map(int[] arcs, int hops, double cost, double distance);
+    }
+
+    // Attributes of the search (graph shared read-only by every task)
+    private final FlightGraph graph;
+    private final ForkJoinPool pool;
+
+    // Constructor: Search graph on the common fork/join pool
+    public ParallelRouteSearch(FlightGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    // Constructor: Search graph on the given pool
+    public ParallelRouteSearch(FlightGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    // Return the mapped routes from source to destination with cost <= maxCost and hops <= maxHop,
+    // in the same order as RouteEnumerator.enumerate()
+    public <T> ArrayList<T> search(int source, int destination, double maxCost, int maxHop, RouteMapper<T> mapper) {
+        return search(source, destination, new int[0], maxCost, maxHop, mapper);
+    }
+
+    // Return the mapped routes that also pass through every city in via, in sequential order
+    public <T> ArrayList<T> search(int source, int destination, int[] via, double maxCost, int maxHop, 
+                                   RouteMapper<T> mapper) {
+        return search(source, destination, via, maxCost, maxHop, null, mapper);
+    }
+
+    // Return the mapped routes like search() above, stopping early as limits say (null for no limits)
+    public <T> ArrayList<T> search(int source, int destination, int[] via, double maxCost, int maxHop, 
+                                   SearchLimits limits, RouteMapper<T> mapper) {
+        // Special Case: Nothing to split (empty route or no hops allowed)
+        if (source == destination || maxHop <= 1) {
+            ArrayList<T> results = new ArrayList<T>();
+            RouteEnumerator enumerator = new RouteEnumerator(graph);
+            enumerator.setLimits(limits);
+            enumerator.enumerate(source, destination, via, maxCost, maxHop, collector(results, mapper));
+            return results;
+        }
+
+        // The bounds are computed once and shared read-only by every subtree
+        DestinationBounds bounds = DestinationBounds.towards(graph, destination, false);
+        ViaCities required = via.length == 0 ? null : new ViaCities(graph, via, source, bounds);
+        List<int[]> prefixes = split(source, bounds, maxCost, maxHop);
+        List<SubtreeTask<T>> tasks = new ArrayList<SubtreeTask<T>>(prefixes.size());
+        for (int[] prefix : prefixes)
+            tasks.add(new SubtreeTask<T>(source, prefix, bounds, required, maxCost, maxHop, limits, mapper));
+
+        return pool.invoke(new RecursiveTask<ArrayList<T>>() {
+            protected ArrayList<T> compute() {
+                ForkJoinTask.invokeAll(tasks);
+                int size = 0;
+                for (SubtreeTask<T> task : tasks)
+                    size += task.getRawResult().size();
+
+                // Keep the first routes in subtree order when there are more than the cap allows
+                long cap = limits == null ? Long.MAX_VALUE : limits.maxRoutes();
+                ArrayList<T> results = new ArrayList<T>((int) Math.min(size, cap));
+                for (SubtreeTask<T> task : tasks) {
+                    ArrayList<T> part = task.getRawResult();
+                    if (results.size() + part.size() > cap) {
+                        results.addAll(part.subList(0, (int) (cap - results.size())));
+                        limits.stop(SearchLimits.Stop.MAX_ROUTES);
+                        break;
+                    }
+                    results.addAll(part);
+                }
+                return results;
+            }
+        });
+    }
+
+    // Return the routes like search() above as one RouteSet (in the same order as RouteEnumerator.enumerate())
+    public RouteSet routes(int source, int destination, int[] via, double maxCost, int maxHop, SearchLimits limits) {
+        // Special Case: Nothing to split (empty route or no hops allowed)
+        if (source == destination || maxHop <= 1) {
+            RouteSet routes = new RouteSet(graph, source);
+            RouteEnumerator enumerator = new RouteEnumerator(graph);
+            enumerator.setLimits(limits);
+            enumerator.enumerate(source, destination, via, maxCost, maxHop, routes);
+            return routes;
+        }
+
+        DestinationBounds bounds = DestinationBounds.towards(graph, destination, false);
+        ViaCities required = via.length == 0 ? null : new ViaCities(graph, via, source, bounds);
+        List<int[]> prefixes = split(source, bounds, maxCost, maxHop);
+        List<RouteSetTask> tasks = new ArrayList<RouteSetTask>(prefixes.size());
+        for (int[] prefix : prefixes)
+            tasks.add(new RouteSetTask(source, prefix, bounds, required, maxCost, maxHop, limits));
+
+        return pool.invoke(new RecursiveTask<RouteSet>() {
+            protected RouteSet compute() {
+                ForkJoinTask.invokeAll(tasks);
+
+                // Keep the first routes in subtree order when there are more than the cap allows
+                long cap = limits == null ? Long.MAX_VALUE : limits.maxRoutes();
+                RouteSet routes = new RouteSet(graph, source);
+                for (RouteSetTask task : tasks) {
+                    RouteSet part = task.getRawResult();
+                    if (routes.size() + part.size() > cap) {
+                        routes.addAll(part, (int) (cap - routes.size()));
+                        limits.stop(SearchLimits.Stop.MAX_ROUTES);
+                        break;
+                    }
+                    routes.addAll(part, part.size());
+                }
+                return routes;
+            }
+        });
+    }
+
+    // Return the search prefixes (one or two arcs each) in the order a sequential search visits them
+    private List<int[]> split(int source, DestinationBounds bounds, double maxCost, int maxHop) {
+        int destination = bounds.destination();
+        List<int[]> prefixes = new ArrayList<int[]>();
+        for (int a = graph.begin(source); a < graph.end(source); a++)
+            if (graph.target(a) != source && bounds.canFinish(graph.target(a), graph.cost(a), 1, maxCost, maxHop))
+                prefixes.add(new int[] {a});
+
+        if (prefixes.size() >= TASKS_PER_WORKER * pool.getParallelism() || maxHop < 3)
+            return prefixes;
+
+        // Too few first hops: split every subtree that does not end at the destination on its second hop
+        List<int[]> deeper = new ArrayList<int[]>();
+        for (int[] prefix : prefixes) {
+            int first = prefix[0];
+            int v = graph.target(first);
+            if (v == destination) {
+                deeper.add(prefix);
+                continue;
+            }
+            for (int a = graph.begin(v); a < graph.end(v); a++) {
+                int w = graph.target(a);
+                if (w != source && w != v && bounds.canFinish(w, graph.cost(first) + graph.cost(a), 2, maxCost, maxHop))
+                    deeper.add(new int[] {first, a});
+            }
+        }
+        return deeper;
+    }
+
+    // Return a visitor that adds every non-null mapped route to results
+    private static <T> RouteEnumerator.Visitor collector(final List<T> results, final RouteMapper<T> mapper) {
+        return (arcs, hops, cost, distance) -> {
+            T result = mapper.map(arcs, hops, cost, distance);
+            if (result != null)
+                results.add(result);
+        };
+    }
+
+    // Fork/join task that enumerates the subtree below one prefix with its own enumerator
+    private class SubtreeTask<T> extends RecursiveTask<ArrayList<T>> {
+        private static final long serialVersionUID = 1L;
+        private final int source;
+        private final int[] prefix;
+        private final DestinationBounds bounds;
+        private final ViaCities via;
+        private final double maxCost;
+        private final int maxHop;
+        private final SearchLimits limits;
+        private final RouteMapper<T> mapper;
+
+        SubtreeTask(int source, int[] prefix, DestinationBounds bounds, ViaCities via, double maxCost, int maxHop,
+                    SearchLimits limits, RouteMapper<T> mapper) {
+            this.source = source;
+            this.prefix = prefix;
+            this.bounds = bounds;
+            this.via = via;
+            this.maxCost = maxCost;
+            this.maxHop = maxHop;
+            this.limits = limits;
+            this.mapper = mapper;
+        }
+
+        protected ArrayList<T> compute() {
+            ArrayList<T> results = new ArrayList<T>();
+            RouteEnumerator enumerator = new RouteEnumerator(graph);
+            enumerator.setLimits(limits);
+            enumerator.enumerate(source, prefix, prefix.length, bounds.destination(), maxCost, maxHop,
+                                                 bounds, via, collector(results, mapper));
+            return results;
+        }
+    }
+
+    // Fork/join task that enumerates the subtree below one prefix into a RouteSet of its own
+    private class RouteSetTask extends RecursiveTask<RouteSet> {
+        private static final long serialVersionUID = 1L;
+        private final int source;
+        private final int[] prefix;
+        private final DestinationBounds bounds;
+        private final ViaCities via;
+        private final double maxCost;
+        private final int maxHop;
+        private final SearchLimits limits;
+
+        RouteSetTask(int source, int[] prefix, DestinationBounds bounds, ViaCities via, double maxCost, int maxHop,
+                     SearchLimits limits) {
+            this.source = source;
+            this.prefix = prefix;
+            this.bounds = bounds;
+            this.via = via;
+            this.maxCost = maxCost;
+            this.maxHop = maxHop;
+            this.limits = limits;
+        }
+
+        protected RouteSet compute() {
+            RouteSet routes = new RouteSet(graph, source);
+            RouteEnumerator enumerator = new RouteEnumerator(graph);
+            enumerator.setLimits(limits);
+            enumerator.enumerate(source, prefix, prefix.length, bounds.destination(), maxCost, maxHop,
+                                 bounds, via, routes);
+            return routes;
+        }
+    }
+
+    // Return the index of the named city (case-insensitive), or -1
+    private static int cityIndex(FlightGraph graph, String name) {
+        for (int v = 0; v < graph.V(); v++)
+            if (graph.city(v).equalsIgnoreCase(name))
+                return v;
+        return -1;
+    }
+
+    // Client: time the sequential search against the parallel one on 1, 2, 4, ... cores
+    // (java ParallelRouteSearch routes.txt source destination maxCost maxHop)
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = RouteFileReader.read(args[0]);
+        int source = cityIndex(graph, args[1]);
+        int destination = cityIndex(graph, args[2]);
+        double maxCost = Double.parseDouble(args[3]);
+        int maxHop = Integer.parseInt(args[4]);
+        if (source < 0 || destination < 0)
+            throw new IllegalArgumentException("Unknown city: " + (source < 0 ? args[1] : args[2]));
+
+        RouteMapper<int[]> copy = (arcs, hops, cost, distance) -> Arrays.copyOf(arcs, hops);
+        int runs = 5;
+
+        // Sequential baseline (best of several runs after warm-up)
+        List<int[]> expected = null;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            ArrayList<int[]> routes = new ArrayList<int[]>();
+            new RouteEnumerator(graph).enumerate(source, destination, maxCost, maxHop, collector(routes, copy));
+            best = Math.min(best, System.nanoTime() - start);
+            expected = routes;
+        }
+        System.out.printf("%d routes from %s to %s (maxCost %.2f, maxHop %d)%n", expected.size(),
+                          graph.city(source), graph.city(destination), maxCost, maxHop);
+        System.out.printf("%-12s %10.1f ms%n", "sequential", best / 1e6);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int p = 1; ; p = Math.min(2 * p, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(p);
+            ParallelRouteSearch search = new ParallelRouteSearch(graph, pool);
+            long bestParallel = Long.MAX_VALUE;
+            boolean same = true;
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                ArrayList<int[]> routes = search.search(source, destination, maxCost, maxHop, copy);
+                bestParallel = Math.min(bestParallel, System.nanoTime() - start);
+                same &= routes.size() == expected.size();
+                for (int j = 0; same && j < routes.size(); j++)
+                    same = Arrays.equals(routes.get(j), expected.get(j));
+            }
+            pool.shutdown();
+            System.out.printf("%-12s %10.1f ms   speedup %5.2fx   %s%n", p + (p == 1 ? " core" : " cores"),
+                              bestParallel / 1e6, (double) best / bestParallel, same ? "same routes" : "ROUTES DIFFER");
+            if (p == cores)
+                break;
+        }
+    }
+}
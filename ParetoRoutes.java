@@ -0,0 +1,280 @@
+/*
+ Multi-criteria route search: returns only the Pareto-optimal routes within a budget, i.e. the
+ routes for which no other route is at least as good in cost, distance and hops and better in
+ one of them. These are the only routes worth showing whichever order the user sorts by.
+ Label-setting search (Martins' algorithm): a label is a partial route (city, cost, distance,
+ hops, previous label). Labels leave a priority queue in lexicographic (cost, distance, hops)
+ order, and a new label is dropped as soon as another label at the same city dominates it, so
+ dominated partial routes are never extended. Labels that cannot reach the destination within
+ the budget (DestinationBounds), or whose best possible completion is already dominated by a
+ route found, are dropped too.
+ With nonnegative costs and distances a route that repeats a city is always dominated by the
+ same route without the loop (fewer hops), so every route found is simple. Routes that must
+ pass through other cities, or networks with negative weights, break that argument; those
+ searches enumerate the routes instead (RouteEnumerator) and keep the running frontier.
+ Routes are visited in lexicographic (cost, distance, hops) order; equal routes are all kept.
+ Under SearchLimits a search stopped early has visited only Pareto-optimal routes (the label
+ search finds them cheapest first), just not all of them.
+ To RUN: java ParetoRoutes global.txt Berlin Sydney maxCost maxHop
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ParetoRoutes {
+    // Attributes of the engine (graph, whether every weight is nonnegative, label arrays)
+    private final FlightGraph graph;
+    private final boolean nonnegative;
+    private int labels;
+    private int[] city = new int[64];
+    private int[] arc = new int[64];
+    private int[] parent = new int[64];
+    private int[] hops = new int[64];
+    private double[] cost = new double[64];
+    private double[] distance = new double[64];
+    private boolean[] dead = new boolean[64];
+    private int[] nextAtCity = new int[64];     // labels at one city form a linked list
+    private int[] heap = new int[64];
+    private int heapSize;
+    private SearchLimits limits;
+
+    // Constructor: Create an engine over graph (reusable, but not by several threads at once)
+    public ParetoRoutes(FlightGraph graph) {
+        this.graph = graph;
+        boolean ok = true;
+        for (int a = 0; a < graph.E() && ok; a++)
+            ok = graph.cost(a) >= 0 && graph.distance(a) >= 0;
+        this.nonnegative = ok;
+    }
+
+    // Apply limits to the following searches (null for none)
+    public void setLimits(SearchLimits limits)  {this.limits = limits;}
+
+    // Visit every Pareto-optimal route from source to destination through every city in via (an empty
+    // array for none) with cost <= maxCost and hops <= maxHop, in lexicographic (cost, distance, hops) order
+    public void search(int source, int destination, int[] via, double maxCost, int maxHop, RouteEnumerator.Visitor visitor) {
+        if (via.length > 0 || !nonnegative || source == destination)
+            filter(source, destination, via, maxCost, maxHop, visitor);
+        else
+            labelSetting(source, destination, maxCost, maxHop, visitor);
+    }
+
+    // Label-setting search (nonnegative weights, no required cities, source != destination)
+    private void labelSetting(int source, int destination, double maxCost, int maxHop, RouteEnumerator.Visitor visitor) {
+        maxHop = Math.min(maxHop, graph.V() - 1);
+        DestinationBounds bounds = DestinationBounds.towards(graph, destination, true);
+        if (maxHop <= 0 || !bounds.canFinish(source, 0.0, 0, maxCost, maxHop))
+            return;
+
+        int[] head = new int[graph.V()];
+        Arrays.fill(head, -1);
+        labels = 0;
+        heapSize = 0;
+        ArrayList<Integer> found = new ArrayList<Integer>();
+        push(newLabel(source, -1, -1, 0.0, 0.0, 0, head));
+
+        int steps = 0;
+        while (heapSize > 0) {
+            int l = pop();
+            if (dead[l])
+                continue;
+            if (limits != null && ++steps == SearchLimits.CHECK_INTERVAL) {
+                steps = 0;
+                if (limits.check(SearchLimits.CHECK_INTERVAL))
+                    break;
+            }
+            if (city[l] == destination) {
+                if (limits != null && found.size() == limits.maxRoutes()) {
+                    limits.stop(SearchLimits.Stop.MAX_ROUTES);
+                    break;
+                }
+                found.add(l);
+                continue;
+            }
+
+            // Drop a label whose best possible completion is already beaten by a route found
+            int v = city[l];
+            double costBound = cost[l] + bounds.cost(v);
+            double distanceBound = distance[l] + bounds.distance(v);
+            int hopBound = hops[l] + bounds.hops(v);
+            boolean beaten = false;
+            for (int i = 0; i < found.size() && !beaten; i++)
+                beaten = dominates(found.get(i), costBound, distanceBound, hopBound);
+            if (beaten)
+                continue;
+
+            for (int a = graph.begin(v); a < graph.end(v); a++) {
+                int w = graph.target(a);
+                double c = cost[l] + graph.cost(a);
+                double d = distance[l] + graph.distance(a);
+                int h = hops[l] + 1;
+                if (w == source || c > maxCost || !bounds.canFinish(w, c, h, maxCost, maxHop))
+                    continue;
+                if (dominatedAt(head[w], c, d, h))
+                    continue;
+                push(newLabel(w, a, l, c, d, h, head));
+            }
+        }
+
+        if (limits != null)
+            limits.check(steps);
+
+        // Walk each route back from its last label
+        int[] path = new int[maxHop];
+        for (int l : found) {
+            for (int i = hops[l] - 1, m = l; i >= 0; i--, m = parent[m])
+                path[i] = arc[m];
+            visitor.visit(path, hops[l], cost[l], distance[l]);
+        }
+    }
+
+    // Return true if a live label in the list starting at first dominates (c, d, h); the labels that
+    // (c, d, h) dominates are killed on the way (equal labels neither dominate nor kill each other)
+    private boolean dominatedAt(int first, double c, double d, int h) {
+        for (int m = first; m >= 0; m = nextAtCity[m]) {
+            if (dead[m])
+                continue;
+            if (dominates(m, c, d, h))
+                return true;
+            if (c <= cost[m] && d <= distance[m] && h <= hops[m]
+                && (c < cost[m] || d < distance[m] || h < hops[m]))
+                dead[m] = true;
+        }
+        return false;
+    }
+
+    // Return true if label l is at least as good as (c, d, h) in every criterion and better in one
+    private boolean dominates(int l, double c, double d, int h) {
+        return cost[l] <= c && distance[l] <= d && hops[l] <= h
+               && (cost[l] < c || distance[l] < d || hops[l] < h);
+    }
+
+    // Create a label at city w (reached over arc a from label p) and add it to w's list; return it
+    private int newLabel(int w, int a, int p, double c, double d, int h, int[] head) {
+        if (labels == city.length) {
+            int n = 2 * labels;
+            city = Arrays.copyOf(city, n);
+            arc = Arrays.copyOf(arc, n);
+            parent = Arrays.copyOf(parent, n);
+            hops = Arrays.copyOf(hops, n);
+            cost = Arrays.copyOf(cost, n);
+            distance = Arrays.copyOf(distance, n);
+            dead = Arrays.copyOf(dead, n);
+            nextAtCity = Arrays.copyOf(nextAtCity, n);
+        }
+        int l = labels++;
+        city[l] = w;
+        arc[l] = a;
+        parent[l] = p;
+        cost[l] = c;
+        distance[l] = d;
+        hops[l] = h;
+        dead[l] = false;
+        nextAtCity[l] = head[w];
+        head[w] = l;
+        return l;
+    }
+
+    // Return true if label l comes before label m in (cost, distance, hops, creation) order
+    private boolean less(int l, int m) {
+        if (cost[l] != cost[m])
+            return cost[l] < cost[m];
+        if (distance[l] != distance[m])
+            return distance[l] < distance[m];
+        if (hops[l] != hops[m])
+            return hops[l] < hops[m];
+        return l < m;
+    }
+
+    // Add label l to the binary heap
+    private void push(int l) {
+        if (heapSize == heap.length)
+            heap = Arrays.copyOf(heap, 2 * heapSize);
+        int i = heapSize++;
+        while (i > 0 && less(l, heap[(i - 1) / 2])) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = l;
+    }
+
+    // Remove and return the first label of the binary heap
+    private int pop() {
+        int top = heap[0];
+        int l = heap[--heapSize];
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child]))
+                child++;
+            if (!less(heap[child], l))
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = l;
+        return top;
+    }
+
+    // Enumerate every route and keep the running frontier, then visit it in (cost, distance, hops) order
+    private void filter(int source, int destination, int[] via, double maxCost, int maxHop, RouteEnumerator.Visitor visitor) {
+        ArrayList<int[]> arcs = new ArrayList<int[]>();
+        ArrayList<double[]> totals = new ArrayList<double[]>();
+        RouteEnumerator enumerator = new RouteEnumerator(graph);
+        enumerator.setLimits(limits);
+        enumerator.enumerate(source, destination, via, maxCost, maxHop, (path, h, c, d) -> {
+            for (int i = 0; i < totals.size(); i++) {
+                double[] t = totals.get(i);
+                if (t[0] <= c && t[1] <= d && t[2] <= h && (t[0] < c || t[1] < d || t[2] < h))
+                    return;
+            }
+            for (int i = totals.size() - 1; i >= 0; i--) {
+                double[] t = totals.get(i);
+                if (c <= t[0] && d <= t[1] && h <= t[2] && (c < t[0] || d < t[1] || h < t[2])) {
+                    totals.remove(i);
+                    arcs.remove(i);
+                }
+            }
+            arcs.add(Arrays.copyOf(path, h));
+            totals.add(new double[] {c, d, h});
+        });
+
+        Integer[] order = new Integer[totals.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (x, y) -> {
+            double[] a = totals.get(x);
+            double[] b = totals.get(y);
+            for (int k = 0; k < 3; k++)
+                if (a[k] != b[k])
+                    return Double.compare(a[k], b[k]);
+            return Integer.compare(x, y);
+        });
+        for (int i : order)
+            visitor.visit(arcs.get(i), arcs.get(i).length, totals.get(i)[0], totals.get(i)[1]);
+    }
+
+    // Test client: print the Pareto-optimal routes between two cities
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = GraphSnapshot.isSnapshot(args[0]) ? GraphSnapshot.read(args[0]) : RouteFileReader.read(args[0]);
+        CityIndex index = new CityIndex(graph);
+        int source = index.indexOf(args[1]);
+        int destination = index.indexOf(args[2]);
+        double maxCost = Double.parseDouble(args[3]);
+        int maxHop = Integer.parseInt(args[4]);
+
+        long start = System.nanoTime();
+        ArrayList<Route> routes = new ArrayList<Route>();
+        new ParetoRoutes(graph).search(source, destination, new int[0], maxCost, maxHop,
+            (path, h, c, d) -> routes.add(new Route(graph, source, path, h, c, d)));
+        long elapsed = System.nanoTime() - start;
+        long[] all = new long[1];
+        new RouteEnumerator(graph).enumerate(source, destination, maxCost, maxHop, (path, h, c, d) -> all[0]++);
+
+        System.out.printf("%d Pareto-optimal routes out of %,d (%.2f ms):%n%n", routes.size(), all[0], elapsed / 1e6);
+        for (Route r : routes)
+            System.out.println(r);
+    }
+}
@@ -1,41 +1,55 @@
 // Author: Caleb Tsai
-
-import java.util.*;
+// A route is stored compactly as the arcs it takes through a FlightGraph plus its totals;
+// the display text is only built when toString() is called
 
 public class Route {
-    // Attributes of a route (collection of individual edges)
-    private ArrayList<Edge> edges;
-    private int hops;
-    private double distance; 
-    private double cost;
-    private String thirdCity;
-    private String display;
-
-    // Constructor: Store individual edges within newly created route, perform assignments
-    public Route(ArrayList<Edge> edges, int hops, double cost, double distance, String thirdCity) {
-        this.edges = edges;
-        this.hops = hops;
+    // Attributes of a route (arcs from the source city, cached totals)
+    private final FlightGraph graph;
+    private final int source;
+    private final int[] arcs;
+    private final double distance;
+    private final double cost;
+
+    // Constructor: Store the first hops arcs of path (copied, so the caller may reuse its array) and the totals
+    public Route(FlightGraph graph, int source, int[] path, int hops, double cost, double distance) {
+        this.graph = graph;
+        this.source = source;
+        this.arcs = new int[hops];
+        System.arraycopy(path, 0, arcs, 0, hops);
         this.cost = cost;
         this.distance = distance;
-        this.thirdCity = thirdCity;
+    }
 
-        String costFormatted = String.format("$%,.2f", cost);
-        String distanceFormatted = String.format("%,.1f", distance);
-        display = "Cost: " + costFormatted + " -- Distance: " + distanceFormatted + " -- Hops: " + hops + " -- Edges:\n";
-        int count = 0;
+    // Return String display of route
+    public String toString() {
+        StringBuilder display = new StringBuilder(64 + 48 * arcs.length);
+        display.append("Cost: ").append(String.format("$%,.2f", cost))
+               .append(" -- Distance: ").append(String.format("%,.1f", distance))
+               .append(" -- Hops: ").append(arcs.length).append(" -- Edges:\n");
 
-        // Add edges to a String that will be displayed in toString() method
-        for(Edge w : edges) {
-            count++;
-            display += "\t" + count + ". " + w.toStringCondensed() + "\n";
+        // Add each edge of the route on its own numbered line
+        int v = source;
+        for(int i = 0; i < arcs.length; i++) {
+            display.append('\t').append(i + 1).append(". ").append(graph.edge(v, arcs[i]).toStringCondensed()).append('\n');
+            v = graph.target(arcs[i]);
         }
+        return display.toString();
     }
 
-    // Return String display of route
-    public String toString()    {return display;}
+    // Return route's starting city
+    public int getSource()  {return source;}
+
+    // Return the i-th city of the route (0 = source, getHops() = destination)
+    public int getCity(int i)   {return i == 0 ? source : graph.target(arcs[i - 1]);}
+
+    // Return the name of the i-th city of the route
+    public String getCityName(int i)    {return graph.city(getCity(i));}
+
+    // Return the arc taken on hop i (0-based)
+    public int getArc(int i)    {return arcs[i];}
 
     // Return route's total number of hops
-    public int getHops()    {return hops;}
+    public int getHops()    {return arcs.length;}
 
     // Return route's total cost
     public double getCost()     {return cost;}
@@ -43,13 +57,14 @@ public class Route {
     // Return route's total distance
     public double getDistance()     {return distance;}
 
-    // Returns true if the desired third city exists in the route to be added 
-    public boolean doesThirdCityExist() {
-        for(int i = 0; i < edges.size(); i++)
-            if(edges.get(i).getSource().toLowerCase().equals(thirdCity.toLowerCase()) || 
-               edges.get(i).getDestination().toLowerCase().equals(thirdCity.toLowerCase()))
+    // Returns true if the route passes through city (its endpoints included)
+    public boolean passesThrough(int city) {
+        if(source == city)
+            return true;
+        for(int i = 0; i < arcs.length; i++)
+            if(graph.target(arcs[i]) == city)
                 return true;
 
         return false;
     }
-}
\ No newline at end of file
+}
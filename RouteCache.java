@@ -0,0 +1,220 @@
+/*
+ Bounded cache of route searches, keyed by (source, destination, required cities).
+ Every entry remembers the budget (maxCost, maxHop) it was computed under. The routes of a
+ smaller budget are exactly the cached routes with cost <= maxCost and hops <= maxHop, and
+ filtering keeps the search order, so such a query is answered from the cache; a query whose
+ budget is larger in either limit is a miss, and its result replaces the entry.
+ Entries are evicted least recently used first once the cached routes exceed the capacity.
+ The cache is thread-safe. Routes are kept as RouteSets; the sets it returns are read-only views
+ that share the cached routes (sort them with RouteSet.sorted()).
+ When the network changes, invalidate(Stale) drops only the searches the change can affect.
+ Every invalidation starts a new generation; a search started in an older generation may have
+ run on the old network, so put() with that generation stores nothing.
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class RouteCache {
+    // Attributes of the cache (entries in access order, capacity in routes, counters)
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private final long capacity;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long generation;
+
+    // Decides whether a cached search is out of date after a change to the network
+    public interface Stale {
+        boolean test(int source, int destination, double maxCost, int maxHop, RouteSet routes);
+    }
+
+    // A query's cache key (the required cities are sorted and deduplicated, so their order does not matter)
+    private static class Key {
+        private final int source;
+        private final int destination;
+        private final int[] via;
+
+        Key(int source, int destination, int[] via) {
+            this.source = source;
+            this.destination = destination;
+            this.via = Arrays.stream(via).sorted().distinct().toArray();
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof Key))
+                return false;
+            Key that = (Key) other;
+            return source == that.source && destination == that.destination && Arrays.equals(via, that.via);
+        }
+
+        public int hashCode() {
+            return 31 * (31 * source + destination) + Arrays.hashCode(via);
+        }
+    }
+
+    // The routes of one search, in search order, with the budget they were found under
+    private static class Entry {
+        private final double maxCost;
+        private final int maxHop;
+        private final RouteSet routes;
+
+        Entry(double maxCost, int maxHop, RouteSet routes) {
+            this.maxCost = maxCost;
+            this.maxHop = maxHop;
+            this.routes = routes;
+        }
+    }
+
+    // Constructor: Create a cache holding at most capacity routes in total
+    public RouteCache(long capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    // Return the routes of the query if a cached search covers its budget (a read-only view, in search order),
+    // or null on a miss
+    public synchronized RouteSet get(int source, int destination, int[] via, double maxCost, int maxHop) {
+        Entry entry = entries.get(new Key(source, destination, via));
+        if (entry == null || maxCost > entry.maxCost || maxHop > entry.maxHop) {
+            misses++;
+            return null;
+        }
+        hits++;
+
+        // Same budget: the whole entry. Smaller budget: the routes within it
+        if (maxCost == entry.maxCost && maxHop == entry.maxHop)
+            return entry.routes;
+        return entry.routes.filter(maxCost, maxHop);
+    }
+
+    // Store the routes of a search (in search order) under its budget, evicting the least recently used
+    // entries as needed; a result larger than the whole cache is not stored
+    public synchronized void put(int source, int destination, int[] via, double maxCost, int maxHop, RouteSet routes) {
+        put(generation, source, destination, via, maxCost, maxHop, routes);
+    }
+
+    // Store the routes of a search like put() above, unless the cache was invalidated since generation
+    // (read generation() before reading the network the search runs on)
+    public synchronized void put(long generation, int source, int destination, int[] via, double maxCost, int maxHop,
+                                 RouteSet routes) {
+        if (generation != this.generation)
+            return;
+        Key key = new Key(source, destination, via);
+        Entry old = entries.remove(key);
+        if (old != null)
+            size -= old.routes.size();
+        if (routes.size() > capacity)
+            return;
+
+        entries.put(key, new Entry(maxCost, maxHop, routes.subList(0, routes.size())));
+        size += routes.size();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (size > capacity) {
+            size -= eldest.next().routes.size();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // Drop every entry (call whenever the network changes); the counters are kept
+    public synchronized void invalidate() {
+        entries.clear();
+        size = 0;
+        generation++;
+    }
+
+    // Drop the entries stale says are out of date; return the number dropped
+    public synchronized int invalidate(Stale stale) {
+        int dropped = 0;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> next = it.next();
+            Key key = next.getKey();
+            Entry entry = next.getValue();
+            if (stale.test(key.source, key.destination, entry.maxCost, entry.maxHop, entry.routes)) {
+                it.remove();
+                size -= entry.routes.size();
+                dropped++;
+            }
+        }
+        generation++;
+        return dropped;
+    }
+
+    // Return the current generation (it changes on every invalidation)
+    public synchronized long generation()   {return generation;}
+
+    // Return the number of cached searches
+    public synchronized int entries()   {return entries.size();}
+
+    // Return the number of cached routes
+    public synchronized long size()     {return size;}
+
+    // Return the number of queries answered from the cache
+    public synchronized long hits()     {return hits;}
+
+    // Return the number of queries the cache could not answer
+    public synchronized long misses()   {return misses;}
+
+    // Return the number of entries evicted to respect the capacity
+    public synchronized long evictions()    {return evictions;}
+
+    // Return a one-line summary of the cache counters
+    public synchronized String toString() {
+        long queries = hits + misses;
+        return String.format("RouteCache: %d searches, %,d routes (capacity %,d), %d hits / %d misses (%.1f%%), %d evictions",
+                             entries.size(), size, capacity, hits, misses, queries == 0 ? 0.0 : 100.0 * hits / queries, evictions);
+    }
+
+    // Test client: replay the same city pairs with shrinking budgets, with and without the cache
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = GraphSnapshot.isSnapshot(args[0]) ? GraphSnapshot.read(args[0]) : RouteFileReader.read(args[0]);
+        double maxCost = Double.parseDouble(args[1]);
+        int maxHop = Integer.parseInt(args[2]);
+        int pairs = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        RouteCache cache = new RouteCache(1_000_000);
+        RouteEnumerator enumerator = new RouteEnumerator(graph);
+        Random random = new Random(1);
+        int[] none = new int[0];
+
+        long cold = 0;
+        long warm = 0;
+        for (int i = 0; i < pairs; i++) {
+            int s = random.nextInt(graph.V());
+            int t = random.nextInt(graph.V());
+            for (int round = 0; round < 5; round++) {
+                double cost = maxCost * (1.0 - 0.1 * round);
+                int hops = Math.max(1, maxHop - round / 2);
+
+                // Without the cache
+                long start = System.nanoTime();
+                RouteSet fresh = new RouteSet(graph, s);
+                enumerator.enumerate(s, t, cost, hops, fresh);
+                cold += System.nanoTime() - start;
+
+                // With the cache
+                start = System.nanoTime();
+                RouteSet cached = cache.get(s, t, none, cost, hops);
+                if (cached == null) {
+                    cached = new RouteSet(graph, s);
+                    enumerator.enumerate(s, t, cost, hops, cached);
+                    cache.put(s, t, none, cost, hops, cached);
+                }
+                warm += System.nanoTime() - start;
+
+                if (!cached.toString().equals(fresh.toString()))
+                    throw new IllegalStateException("Cached routes differ for " + s + " -> " + t);
+            }
+        }
+        System.out.printf("Without cache: %.1f ms, with cache: %.1f ms%n", cold / 1e6, warm / 1e6);
+        System.out.println(cache);
+    }
+}
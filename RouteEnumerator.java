@@ -0,0 +1,241 @@
+/*
+ Iterative enumeration of every simple route between two cities of a FlightGraph that stays
+ within a maximum cost and a maximum number of hops.
+ The search keeps an explicit stack in primitive arrays (city, next arc to try, running cost
+ and distance per depth), so it never recurses and allocates nothing while exploring.
+ Each complete route is handed to a Visitor as the arcs taken from the source city; the arc
+ array is reused, so a visitor must copy whatever it wants to keep.
+ Branches that cannot reach the destination within the remaining cost or hop budget (according
+ to the DestinationBounds lower bounds) are cut as soon as they are generated.
+ Routes may also be required to pass through a set of cities (ViaCities); that is tracked as a bit
+ mask on the stack and enforced during the search, not by filtering complete routes.
+ Routes are produced in the same order as the original recursive depth-first search.
+ With SearchLimits set, the search stops early once it has found maxRoutes routes (the first
+ ones in search order), passes the deadline or is cancelled; it counts every arc it extends a
+ route along and checks the clock and the token every SearchLimits.CHECK_INTERVAL of them.
+ Author: Caleb Tsai
+ */
+
+public class RouteEnumerator {
+    // Receives each route found: arcs[0..hops) lead from the source to the destination
+    public interface Visitor {
+        void visit(int[] arcs, int hops, double cost, double distance);
+    }
+
+    // A visitor that only wants routes whose key under order() is at most limit(); the search cuts
+    // every branch whose lower bound on that key is already above the current limit
+    public interface BoundedVisitor extends Visitor {
+        RouteOrder order();
+        double limit();
+    }
+
+    // Attributes of the enumerator (graph plus reusable search stack)
+    private final FlightGraph graph;
+    private final boolean[] marked;
+    private int[] vertex = new int[0];
+    private int[] cursor = new int[0];
+    private int[] arcs = new int[0];
+    private double[] cost = new double[0];
+    private double[] distance = new double[0];
+    private long[] mask = new long[0];
+    private SearchLimits limits;
+
+    // Constructor: Create an enumerator over graph (reusable for any number of searches)
+    public RouteEnumerator(FlightGraph graph) {
+        this.graph = graph;
+        this.marked = new boolean[graph.V()];
+    }
+
+    // Apply limits to the following searches (null for none)
+    public void setLimits(SearchLimits limits)  {this.limits = limits;}
+
+    // Grow the stack arrays so they can hold a path of the given number of hops
+    private void ensureDepth(int hops) {
+        if (arcs.length >= hops)
+            return;
+        vertex = new int[hops];
+        cursor = new int[hops];
+        arcs = new int[hops];
+        cost = new double[hops];
+        distance = new double[hops];
+        mask = new long[hops];
+    }
+
+    // Visit every simple route from source to destination with cost <= maxCost and hops <= maxHop
+    public void enumerate(int source, int destination, double maxCost, int maxHop, Visitor visitor) {
+        enumerate(source, null, 0, destination, maxCost, maxHop, null, null, visitor);
+    }
+
+    // Visit every such route that also passes through every city in via (an empty array for none)
+    public void enumerate(int source, int destination, int[] via, double maxCost, int maxHop, Visitor visitor) {
+        DestinationBounds bounds = null;
+        ViaCities required = null;
+        if (via.length > 0) {
+            bounds = DestinationBounds.towards(graph, destination, visitor instanceof BoundedVisitor
+                                           && ((BoundedVisitor) visitor).order() == RouteOrder.DISTANCE);
+            required = new ViaCities(graph, via, source, bounds);
+        }
+        enumerate(source, null, 0, destination, maxCost, maxHop, bounds, required, visitor);
+    }
+
+    // Visit every such route that starts with the first prefixHops arcs of prefix (a subtree of the search),
+    // pruning with bounds towards destination (computed here if null, so callers can share one copy) and
+    // keeping only routes through every city of via (null for no required cities)
+    public void enumerate(int source, int[] prefix, int prefixHops, int destination, double maxCost, int maxHop, 
+                          DestinationBounds bounds, ViaCities via, Visitor visitor) {
+        // Special Case: Source is the destination (the empty route)
+        if (source == destination) {
+            if (prefixHops == 0 && (via == null || via.initialMask() == via.allMask()))
+                visitor.visit(arcs, 0, 0.0, 0.0);
+            return;
+        }
+
+        // A simple route never has more hops than there are other cities
+        maxHop = Math.min(maxHop, graph.V() - 1);
+        if (maxHop <= 0 || prefixHops > maxHop)
+            return;
+        BoundedVisitor bounded = visitor instanceof BoundedVisitor ? (BoundedVisitor) visitor : null;
+        RouteOrder order = bounded == null ? null : bounded.order();
+        if (bounds == null || (order == RouteOrder.DISTANCE && !bounds.hasDistance()))
+            bounds = DestinationBounds.towards(graph, destination, order == RouteOrder.DISTANCE);
+        ensureDepth(maxHop);
+        double costLimit = DestinationBounds.withSlack(maxCost);
+        if (!bounds.canFinish(source, 0.0, 0, maxCost, maxHop))
+            return;
+
+        int d = 0;
+        vertex[0] = source;
+        cursor[0] = graph.begin(source);
+        cost[0] = 0.0;
+        distance[0] = 0.0;
+        mask[0] = via == null ? 0 : via.initialMask();
+        marked[source] = true;
+        if (via != null && !via.canFinish(source, mask[0], 0.0, 0, maxCost, maxHop)) {
+            unmark(d);
+            return;
+        }
+
+        // Replay the prefix as stack frames whose remaining arcs are already exhausted
+        for (int i = 0; i < prefixHops; i++) {
+            int a = prefix[i];
+            int w = graph.target(a);
+            double newCost = cost[d] + graph.cost(a);
+            long newMask = via == null ? 0 : mask[d] | via.bit(w);
+            if (marked[w] || newCost > maxCost || !bounds.canFinish(w, newCost, d + 1, maxCost, maxHop)
+                || (w == destination && i + 1 < prefixHops)
+                || (via != null && !viaAllows(via, w, newMask, newCost, d + 1, destination, maxCost, maxHop))) {
+                unmark(d);
+                return;
+            }
+            cursor[d] = graph.end(vertex[d]);
+            arcs[d] = a;
+            double newDistance = distance[d] + graph.distance(a);
+
+            if (w == destination) {
+                visitor.visit(arcs, d + 1, newCost, newDistance);
+                unmark(d);
+                return;
+            }
+            if (d + 1 == maxHop) {
+                unmark(d);
+                return;
+            }
+            d++;
+            vertex[d] = w;
+            cost[d] = newCost;
+            distance[d] = newDistance;
+            mask[d] = newMask;
+            marked[w] = true;
+        }
+        cursor[d] = graph.begin(vertex[d]);
+        if (limits != null && limits.check(0)) {
+            unmark(d);
+            return;
+        }
+
+        long found = 0;
+        int steps = 0;
+        while (d >= 0) {
+            int v = vertex[d];
+            int a = cursor[d];
+            int end = graph.end(v);
+            double newCost = 0.0;
+
+            // Find the next arc out of v to an unmarked city from which the destination is still
+            // reachable within the cost limit and the hop limit (and the bounded visitor's limit),
+            // visiting every required city that is still missing on the way
+            for (; a < end; a++) {
+                int w = graph.target(a);
+                if (!marked[w] && d + 1 + bounds.hops(w) <= maxHop) {
+                    newCost = cost[d] + graph.cost(a);
+                    if (newCost <= maxCost && newCost + bounds.cost(w) <= costLimit
+                        && (bounded == null || bounds.keyBound(order, w, d + 1, newCost, distance[d] + graph.distance(a))
+                                               <= DestinationBounds.withSlack(bounded.limit()))
+                        && (via == null || viaAllows(via, w, mask[d] | via.bit(w), newCost, d + 1, destination,
+                                                     maxCost, maxHop)))
+                        break;
+                }
+            }
+
+            // No arcs left: backtrack to the previous city
+            if (a == end) {
+                marked[v] = false;
+                d--;
+                continue;
+            }
+
+            cursor[d] = a + 1;
+            arcs[d] = a;
+            int w = graph.target(a);
+            double newDistance = distance[d] + graph.distance(a);
+
+            // Every so often check the clock and the cancellation token
+            if (limits != null && ++steps == SearchLimits.CHECK_INTERVAL) {
+                steps = 0;
+                if (limits.check(SearchLimits.CHECK_INTERVAL)) {
+                    unmark(d);
+                    return;
+                }
+            }
+
+            // Reached the destination: report the route (unless the cap is reached), it is never extended further
+            if (w == destination) {
+                if (limits != null && ++found > limits.maxRoutes()) {
+                    limits.stop(SearchLimits.Stop.MAX_ROUTES);
+                    limits.check(steps);
+                    unmark(d);
+                    return;
+                }
+                visitor.visit(arcs, d + 1, newCost, newDistance);
+            }
+
+            // Otherwise descend into w if another hop is still allowed
+            else if (d + 1 < maxHop) {
+                d++;
+                vertex[d] = w;
+                cursor[d] = graph.begin(w);
+                cost[d] = newCost;
+                distance[d] = newDistance;
+                mask[d] = via == null ? 0 : mask[d - 1] | via.bit(w);
+                marked[w] = true;
+            }
+        }
+        if (limits != null)
+            limits.check(steps);
+    }
+
+    // Return true if stepping to w (required cities visited: newMask) keeps the route able to satisfy via;
+    // the destination ends a route, so every required city must have been visited by then
+    private static boolean viaAllows(ViaCities via, int w, long newMask, double newCost, int newHop, int destination,
+                                     double maxCost, int maxHop) {
+        if (w == destination)
+            return newMask == via.allMask();
+        return via.canFinish(w, newMask, newCost, newHop, maxCost, maxHop);
+    }
+
+    // Unmark the cities on the stack from depth d down to 0
+    private void unmark(int d) {
+        for (; d >= 0; d--)
+            marked[vertex[d]] = false;
+    }
+}
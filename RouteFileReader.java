@@ -0,0 +1,274 @@
+/*
+ Fast reader for airline route files:
+   V
+   V city names (one token each)
+   any number of direct routes "v w distance cost"
+ The file is bulk-read through a FileChannel into a reusable ByteBuffer and numbers are
+ parsed straight from the bytes into primitive arrays (no Scanner, no per-token Strings).
+ Malformed input is reported with the line and column where parsing failed.
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class RouteFileReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int EOF = -1;
+
+    // Exact powers of ten for the fast double path (10^22 is the largest exactly representable one)
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10.0;
+    }
+
+    // Attributes of the reader (channel, byte window, position for error messages)
+    private final String file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private byte[] token = new byte[64];
+    private int tokenLength;
+    private int line = 1;
+    private int column = 1;
+    private int tokenLine;
+    private int tokenColumn;
+
+    // Error thrown when the route file does not follow the expected format
+    public static class FormatException extends IOException {
+        private static final long serialVersionUID = 1L;
+        private final int line;
+        private final int column;
+
+        public FormatException(String file, int line, int column, String message) {
+            super(file + ":" + line + ":" + column + ": " + message);
+            this.line = line;
+            this.column = column;
+        }
+
+        // Return the 1-based line of the offending token
+        public int getLine()    {return line;}
+
+        // Return the 1-based column of the offending token
+        public int getColumn()  {return column;}
+    }
+
+    // Constructor: Open the file for reading (use read() to parse it)
+    private RouteFileReader(String file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    // Parse the given route file into a FlightGraph
+    public static FlightGraph read(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            return new RouteFileReader(file, channel).parse();
+        }
+    }
+
+    // Parse the header, the city names and every direct route
+    private FlightGraph parse() throws IOException {
+        if (!nextToken())
+            throw error("expected the number of cities but the file is empty");
+        int V = parseInt("number of cities");
+        if (V < 0)
+            throw error("number of cities must be nonnegative, found " + V);
+
+        String[] cities = new String[V];
+        for (int i = 0; i < V; i++) {
+            if (!nextToken())
+                throw error("expected " + V + " city names but found only " + i);
+            cities[i] = new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+        }
+
+        // Collect each direct route (source, destination, distance, cost) into growable primitive arrays
+        int n = 0;
+        int[] from = new int[16];
+        int[] to = new int[16];
+        double[] distances = new double[16];
+        double[] costs = new double[16];
+
+        while (nextToken()) {
+            if (n == from.length) {
+                from = Arrays.copyOf(from, 2 * n);
+                to = Arrays.copyOf(to, 2 * n);
+                distances = Arrays.copyOf(distances, 2 * n);
+                costs = Arrays.copyOf(costs, 2 * n);
+            }
+            from[n] = parseCity(V, "source city index");
+            requireToken("destination city index");
+            to[n] = parseCity(V, "destination city index");
+            requireToken("distance");
+            distances[n] = parseDouble("distance");
+            requireToken("cost");
+            costs[n] = parseDouble("cost");
+            n++;
+        }
+
+        return new FlightGraph(cities, from, to, distances, costs, n);
+    }
+
+    // Return the next byte of the file (0-255, or EOF), refilling the buffer from the channel as needed
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int count;
+            do {
+                count = channel.read(buffer);
+            } while (count == 0);
+            buffer.flip();
+            if (count < 0)
+                return EOF;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    // Load the next whitespace-separated token into token[], returning false at end of file
+    private boolean nextToken() throws IOException {
+        int b = read();
+        while (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+            advance(b);
+            b = read();
+        }
+        if (b == EOF)
+            return false;
+
+        tokenLine = line;
+        tokenColumn = column;
+        tokenLength = 0;
+        while (b != EOF && b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+            if (tokenLength == token.length)
+                token = Arrays.copyOf(token, 2 * tokenLength);
+            token[tokenLength++] = (byte) b;
+            column++;
+            b = read();
+        }
+        if (b != EOF)
+            advance(b);
+        return true;
+    }
+
+    // Update the line/column position after consuming whitespace byte b
+    private void advance(int b) {
+        if (b == '\n') {
+            line++;
+            column = 1;
+        }
+        else
+            column++;
+    }
+
+    // Load the next token, failing if the file ends in the middle of a route
+    private void requireToken(String what) throws IOException {
+        if (!nextToken())
+            throw new FormatException(file, line, column, "expected " + what + " but reached the end of the file");
+    }
+
+    // Parse the current token as a city index in [0, V)
+    private int parseCity(int V, String what) throws IOException {
+        int v = parseInt(what);
+        if (v < 0 || v >= V)
+            throw error(what + " " + v + " is not between 0 and " + (V - 1));
+        return v;
+    }
+
+    // Parse the current token as a (possibly signed) decimal int
+    private int parseInt(String what) throws IOException {
+        int i = 0;
+        boolean negative = false;
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i++;
+        }
+        if (i == tokenLength)
+            throw error("expected " + what + " (an integer) but found \"" + tokenString() + "\"");
+
+        long value = 0;
+        for (; i < tokenLength; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw error("expected " + what + " (an integer) but found \"" + tokenString() + "\"");
+            value = 10 * value + digit;
+            if (value > Integer.MAX_VALUE + 1L)
+                throw error(what + " \"" + tokenString() + "\" is out of range");
+        }
+        if (negative)
+            value = -value;
+        if (value > Integer.MAX_VALUE)
+            throw error(what + " \"" + tokenString() + "\" is out of range");
+        return (int) value;
+    }
+
+    // Parse the current token as a double. Plain decimals such as "550.00" are converted exactly
+    // as mantissa / 10^k; anything else (exponents, very long mantissas) falls back to Double.parseDouble
+    private double parseDouble(String what) throws IOException {
+        int i = 0;
+        boolean negative = false;
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < tokenLength; i++) {
+            int b = token[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = 10 * mantissa + (b - '0');
+                if (++digits > 18)
+                    return parseSlow(what);
+                if (fraction >= 0)
+                    fraction++;
+            }
+            else if (b == '.' && fraction < 0)
+                fraction = 0;
+            else
+                return parseSlow(what);
+        }
+        if (digits == 0)
+            throw error("expected " + what + " (a number) but found \"" + tokenString() + "\"");
+
+        int scale = fraction < 0 ? 0 : fraction;
+        if (mantissa >= (1L << 53) || scale >= POW10.length)
+            return parseSlow(what);
+        double value = mantissa / POW10[scale];
+        return negative ? -value : value;
+    }
+
+    // Parse the current token with Double.parseDouble (uncommon number formats only)
+    private double parseSlow(String what) throws IOException {
+        try {
+            return Double.parseDouble(tokenString());
+        } catch (NumberFormatException e) {
+            throw error("expected " + what + " (a number) but found \"" + tokenString() + "\"");
+        }
+    }
+
+    // Return the current token as a String (error messages and slow paths only)
+    private String tokenString() {
+        return new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+    }
+
+    // Create a FormatException positioned at the current token
+    private FormatException error(String message) {
+        return new FormatException(file, tokenLine, tokenColumn, message);
+    }
+
+    // Test client: parse a route file and report its size and load time
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        FlightGraph graph = read(args[0]);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s: %d cities, %d direct routes, loaded in %.1f ms%n",
+                          args[0], graph.V(), graph.routes(), elapsed / 1e6);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ The orders in which routes can be listed (fewest hops, cheapest, shortest distance).
+ Each order compares Route objects and also exposes the raw key, so searches that only
+ keep primitive totals (e.g. TopRoutes) can rank routes without building them.
+ Author: Caleb Tsai
+ */
+
+import java.util.Comparator;
+
+public enum RouteOrder implements Comparator<Route> {
+    HOPS("hops (fewest to most)"),
+    COST("cost (cheapest to most expensive)"),
+    DISTANCE("distance (shortest to longest overall)");
+
+    private final String description;
+
+    RouteOrder(String description) {
+        this.description = description;
+    }
+
+    // Return the text used when listing routes in this order
+    public String description()     {return description;}
+
+    // Return the value this order sorts by, given a route's totals
+    public double key(int hops, double cost, double distance) {
+        switch (this) {
+            case HOPS:  return hops;
+            case COST:  return cost;
+            default:    return distance;
+        }
+    }
+
+    // Return the value this order sorts by for route r
+    public double key(Route r) {
+        return key(r.getHops(), r.getCost(), r.getDistance());
+    }
+
+    // Compare two routes by this order's key
+    public int compare(Route firstRoute, Route secondRoute) {
+        return Double.compare(key(firstRoute), key(secondRoute));
+    }
+}
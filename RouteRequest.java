@@ -0,0 +1,173 @@
+/*
+ One route question, independent of how it was asked (menu, batch file or server):
+   source, destination  - city names (any capitalization)
+   via                  - cities every route must pass through (may be empty)
+   maxCost, maxHop      - the budget (unlimited if not given)
+   order                - how to rank the routes (null keeps the search order)
+   limit                - at most this many routes, the best ones under order (0 for all)
+   pareto               - only the Pareto-optimal routes (see ParetoRoutes), then order and limit
+   engine               - "search" (the default) enumerates routes; "shortest" finds the limit best routes
+                          under order with ShortestRoutes instead (needs order and limit, not pareto;
+                          a request with via cities is still answered by the enumerating search)
+   maxResults, timeout  - stop the search after this many routes or milliseconds (0 for no limit);
+                          the result then holds the routes found so far and is flagged truncated
+ As a JSON line:
+   {"source":"Berlin","destination":"Sydney","via":["London"],"maxCost":2000,"maxHop":3,"sort":"cost","limit":5}
+   {"source":"Berlin","destination":"Sydney","maxCost":2000,"maxHop":3,"pareto":true,"sort":"hops"}
+   {"source":"Berlin","destination":"Sydney","sort":"cost","limit":3,"engine":"shortest"}
+ Author: Caleb Tsai
+ */
+
+import java.util.List;
+import java.util.Map;
+
+public class RouteRequest {
+    // Attributes of a request
+    private final String source;
+    private final String destination;
+    private final String[] via;
+    private final double maxCost;
+    private final int maxHop;
+    private final RouteOrder order;
+    private final int limit;
+    private final boolean pareto;
+    private final boolean shortest;
+    private final long maxResults;
+    private final long timeout;
+
+    // Constructor: Create a request (via may be empty, order may be null, limit 0 means all routes,
+    // pareto keeps only the Pareto-optimal routes, shortest uses the ShortestRoutes engine, maxResults and
+    // timeout 0 mean no limit)
+    public RouteRequest(String source, String destination, String[] via, double maxCost, int maxHop,
+                        RouteOrder order, int limit, boolean pareto, boolean shortest, long maxResults, long timeout) {
+        if (source == null || destination == null)
+            throw new IllegalArgumentException("A request needs both a source and a destination");
+        if (maxHop < 0 || limit < 0 || maxResults < 0 || timeout < 0)
+            throw new IllegalArgumentException("maxHop, limit, maxResults and timeout cannot be negative");
+        if (shortest && (order == null || limit == 0 || pareto))
+            throw new IllegalArgumentException("engine \"shortest\" needs a sort and a limit, and no pareto");
+        this.source = source;
+        this.destination = destination;
+        this.via = via.clone();
+        this.maxCost = maxCost;
+        this.maxHop = maxHop;
+        this.order = order;
+        this.limit = limit;
+        this.pareto = pareto;
+        this.shortest = shortest;
+        this.maxResults = maxResults;
+        this.timeout = timeout;
+    }
+
+    // Return the request described by a parsed JSON object (see Json.parse)
+    public static RouteRequest fromJson(Object json) {
+        if (!(json instanceof Map))
+            throw new IllegalArgumentException("A request must be a JSON object");
+        Map<?, ?> fields = (Map<?, ?>) json;
+
+        // Required cities: a single name or an array of names
+        Object viaField = fields.get("via");
+        String[] via;
+        if (viaField == null)
+            via = new String[0];
+        else if (viaField instanceof List) {
+            List<?> names = (List<?>) viaField;
+            via = new String[names.size()];
+            for (int i = 0; i < via.length; i++)
+                via[i] = text(names.get(i), "via");
+        }
+        else
+            via = new String[] {text(viaField, "via")};
+
+        Object sort = fields.get("sort");
+        RouteOrder order = null;
+        if (sort != null) {
+            try {
+                order = RouteOrder.valueOf(text(sort, "sort").toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("sort must be hops, cost or distance, not \"" + sort + "\"");
+            }
+        }
+
+        Object engine = fields.get("engine");
+        boolean shortest = false;
+        if (engine != null) {
+            String name = text(engine, "engine");
+            if (name.equalsIgnoreCase("shortest"))
+                shortest = true;
+            else if (!name.equalsIgnoreCase("search"))
+                throw new IllegalArgumentException("engine must be search or shortest, not \"" + name + "\"");
+        }
+
+        return new RouteRequest(text(fields.get("source"), "source"), text(fields.get("destination"), "destination"), via,
+                                number(fields.get("maxCost"), "maxCost", Double.POSITIVE_INFINITY),
+                                (int) Math.min(Integer.MAX_VALUE, number(fields.get("maxHop"), "maxHop", Integer.MAX_VALUE)),
+                                order, (int) number(fields.get("limit"), "limit", 0), flag(fields.get("pareto"), "pareto"),
+                                shortest,
+                                (long) number(fields.get("maxResults"), "maxResults", 0),
+                                (long) number(fields.get("timeout"), "timeout", 0));
+    }
+
+    // Return a JSON field that must be a string
+    private static String text(Object value, String field) {
+        if (value == null)
+            throw new IllegalArgumentException("Missing field \"" + field + "\"");
+        if (!(value instanceof String))
+            throw new IllegalArgumentException("Field \"" + field + "\" must be a string");
+        return (String) value;
+    }
+
+    // Return a JSON field that must be true or false (false if it is absent)
+    private static boolean flag(Object value, String field) {
+        if (value == null)
+            return false;
+        if (!(value instanceof Boolean))
+            throw new IllegalArgumentException("Field \"" + field + "\" must be true or false");
+        return (Boolean) value;
+    }
+
+    // Return a JSON field that must be a number, or otherwise if it is absent
+    private static double number(Object value, String field, double otherwise) {
+        if (value == null)
+            return otherwise;
+        if (!(value instanceof Double))
+            throw new IllegalArgumentException("Field \"" + field + "\" must be a number");
+        return (Double) value;
+    }
+
+    // Return the starting city's name
+    public String getSource()   {return source;}
+
+    // Return the destination city's name
+    public String getDestination()  {return destination;}
+
+    // Return the names of the cities every route must pass through
+    public String[] getVia()    {return via.clone();}
+
+    // Return the maximum total cost
+    public double getMaxCost()  {return maxCost;}
+
+    // Return the maximum number of hops
+    public int getMaxHop()  {return maxHop;}
+
+    // Return the order to rank routes by (null for search order)
+    public RouteOrder getOrder()    {return order;}
+
+    // Return the maximum number of routes to return (0 for all)
+    public int getLimit()   {return limit;}
+
+    // Return true if only the Pareto-optimal routes are wanted
+    public boolean isPareto()   {return pareto;}
+
+    // Return true if the best routes are to be found with ShortestRoutes rather than by enumerating routes
+    public boolean isShortest() {return shortest;}
+
+    // Return the most routes the search may find (0 for no cap)
+    public long getMaxResults()     {return maxResults;}
+
+    // Return the time the search may take, in milliseconds (0 for no deadline)
+    public long getTimeout()    {return timeout;}
+
+    // Return new search limits for this request (the timeout counts from now)
+    public SearchLimits limits()    {return new SearchLimits(maxResults, timeout);}
+}
@@ -0,0 +1,88 @@
+/*
+ The answer to a RouteRequest: the routes found (ranked and cut as the request asked) with the
+ resolved city names and the time the search took. Results are immutable, so they can be
+ handed between threads, cached or rendered any number of times. A RouteSet is kept as it is
+ (a read-only view), so its routes are only built as they are rendered.
+ A search stopped by its SearchLimits gives a truncated result: the routes found so far, why
+ the search stopped and how many partial routes it had explored.
+ Author: Caleb Tsai
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RouteResult {
+    // Attributes of a result
+    private final RouteRequest request;
+    private final CityIndex names;
+    private final int source;
+    private final int destination;
+    private final List<Route> routes;
+    private final long elapsed;
+    private final SearchLimits.Stop stopped;
+    private final long explored;
+
+    // Constructor: Wrap the routes found for request between the cities source and destination, under limits
+    public RouteResult(RouteRequest request, CityIndex names, int source, int destination, List<Route> routes, long elapsed,
+                       SearchLimits limits) {
+        this.request = request;
+        this.names = names;
+        this.source = source;
+        this.destination = destination;
+        this.routes = routes instanceof RouteSet ? ((RouteSet) routes).subList(0, routes.size())
+                                                 : Collections.unmodifiableList(new ArrayList<Route>(routes));
+        this.elapsed = elapsed;
+        this.stopped = limits.stopped();
+        this.explored = limits.explored();
+    }
+
+    // Return the request this result answers
+    public RouteRequest getRequest()    {return request;}
+
+    // Return the id of the starting city
+    public int getSource()  {return source;}
+
+    // Return the id of the destination city
+    public int getDestination()     {return destination;}
+
+    // Return the routes found (read-only), in the order the request asked for
+    public List<Route> getRoutes()  {return routes;}
+
+    // Return the number of routes found
+    public int size()   {return routes.size();}
+
+    // Return the time the query took, in nanoseconds
+    public long getElapsed()    {return elapsed;}
+
+    // Return true if the search was stopped early, so the routes are only part of the answer
+    public boolean isTruncated()    {return stopped != null;}
+
+    // Return why the search stopped early, or null
+    public SearchLimits.Stop getStopped()   {return stopped;}
+
+    // Return the number of partial routes the search extended
+    public long getExplored()   {return explored;}
+
+    // Append the result's JSON fields (no enclosing braces, so callers can add their own fields):
+    //   "source":"Berlin","destination":"Sydney","count":1,
+    //   "routes":[{"cost":1250,"distance":10823.5,"hops":2,"cities":["Berlin","London","Sydney"]}]
+    // and for a truncated result also
+    //   "truncated":"deadline","explored":1048576
+    public StringBuilder appendJson(StringBuilder json) {
+        json.append("\"source\":");
+        Json.quote(json, names.name(source)).append(",\"destination\":");
+        Json.quote(json, names.name(destination)).append(",\"count\":").append(routes.size()).append(",\"routes\":[");
+        for (int i = 0; i < routes.size(); i++)
+            Listing.json(i > 0 ? json.append(',') : json, routes.get(i));
+        json.append(']');
+        if (stopped != null)
+            json.append(",\"truncated\":\"").append(stopped.key()).append("\",\"explored\":").append(explored);
+        return json;
+    }
+
+    // Return the result as a JSON object
+    public String toJson() {
+        return appendJson(new StringBuilder(64 + 96 * routes.size()).append('{')).append('}').toString();
+    }
+}
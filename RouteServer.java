@@ -0,0 +1,287 @@
+/*
+ Local HTTP server answering route queries against one loaded network (JDK built-in server,
+ no extra dependencies).
+   GET  /route?source=Berlin&destination=Sydney&via=London,Paris&maxCost=2000&maxHop=3&sort=cost&limit=5
+   GET  /route?source=Berlin&destination=Sydney&maxCost=2000&maxHop=3&pareto=true
+   POST /route   with a RouteRequest JSON object as the body
+   GET  /stats   request counters and the route cache summary
+ Every answer is a JSON object (see RouteResult); errors are {"error":"..."} with a 4xx/5xx status.
+ Concurrency is bounded at three points:
+   - connections are handled by a fixed pool of handler threads, which mostly just wait
+   - searches run on a fixed pool of workers (one per core by default)
+   - at most maxInFlight searches are admitted at once; beyond that a request is refused with
+     503 straight away instead of queueing without bound
+ A search that is not finished within the timeout is answered with 504 and cancelled: it stops
+ within a few thousand steps (see SearchLimits) and frees its worker and its admission slot, so
+ a broad query cannot hold them. A query may set a tighter "timeout" (ms) of its own, or cap the
+ routes with "maxResults"; it is then answered with the routes found so far, marked "truncated".
+ Each query runs on the network version current when it starts; with --updates the server follows
+ a delta file of route changes (see DeltaWatcher) and /stats reports the network version.
+ The server listens on the loopback interface only, unless --bind names another address
+ (e.g. --bind 0.0.0.0 for every interface).
+ To RUN: java RouteServer global.txt [port] [--bind address] [--threads N] [--workers N] [--max-in-flight N]
+                                     [--timeout ms] [--updates deltas.txt] [--bounds] [--bidirectional]
+                                     [--hierarchies]
+ Author: Caleb Tsai
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RouteServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int MAX_BODY_BYTES = 1 << 16;
+
+    // Attributes of a server (airline, HTTP server, thread pools, admission control, counters)
+    private final Airline airline;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ExecutorService workers;
+    private final Semaphore admission;
+    private final int maxInFlight;
+    private final long timeoutMillis;
+    private final AtomicLong answered = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    // Constructor: Serve airline on port of the loopback interface with the given pool sizes, admission limit
+    // and per-request timeout
+    public RouteServer(Airline airline, int port, int handlerThreads, int workerThreads, int maxInFlight,
+                       long timeoutMillis) throws IOException {
+        this(airline, InetAddress.getLoopbackAddress(), port, handlerThreads, workerThreads, maxInFlight, timeoutMillis);
+    }
+
+    // Constructor: Serve airline on port of the given address with the given pool sizes, admission limit and
+    // per-request timeout
+    public RouteServer(Airline airline, InetAddress address, int port, int handlerThreads, int workerThreads,
+                       int maxInFlight, long timeoutMillis) throws IOException {
+        if (handlerThreads <= 0 || workerThreads <= 0 || maxInFlight <= 0 || timeoutMillis <= 0)
+            throw new IllegalArgumentException("Thread counts, the in-flight limit and the timeout must be positive");
+        this.airline = airline;
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+        this.admission = new Semaphore(maxInFlight);
+        this.handlers = Executors.newFixedThreadPool(handlerThreads);
+        this.workers = Executors.newFixedThreadPool(workerThreads);
+        this.server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.setExecutor(handlers);
+        server.createContext("/route", this::route);
+        server.createContext("/stats", this::stats);
+    }
+
+    // Start accepting requests
+    public void start()     {server.start();}
+
+    // Stop accepting requests, give open exchanges up to delay seconds, then stop every thread
+    public void stop(int delay) {
+        server.stop(delay);
+        handlers.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    // Return the port the server listens on
+    public int getPort()    {return server.getAddress().getPort();}
+
+    // Handle /route: parse the request, run it within the admission limit and the timeout, send the result
+    private void route(HttpExchange exchange) throws IOException {
+        RouteRequest request;
+        try {
+            String method = exchange.getRequestMethod();
+            if (method.equals("GET"))
+                request = RouteRequest.fromJson(parameters(exchange.getRequestURI().getRawQuery()));
+            else if (method.equals("POST"))
+                request = RouteRequest.fromJson(Json.parse(body(exchange.getRequestBody())));
+            else {
+                send(exchange, 405, error("Use GET or POST"));
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            rejected.incrementAndGet();
+            send(exchange, 400, error(e.getMessage()));
+            return;
+        }
+
+        // Refuse at once when too many searches are admitted already
+        if (!admission.tryAcquire()) {
+            refused.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, error("Too many concurrent queries (limit " + maxInFlight + "), try again later"));
+            return;
+        }
+
+        // Exactly one side claims the slot's release: the search when it starts (and releases it when done)
+        // or this handler when it gives up on a search that never started
+        AtomicBoolean claimed = new AtomicBoolean();
+        SearchLimits limits = request.limits();
+        Future<RouteResult> future = workers.submit(() -> {
+            if (!claimed.compareAndSet(false, true))
+                return null;
+            try {
+                return airline.query(request, limits);
+            } finally {
+                admission.release();
+            }
+        });
+
+        try {
+            RouteResult result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            StringBuilder json = result.appendJson(new StringBuilder(256).append('{'));
+            json.append(",\"elapsedMs\":");
+            Json.number(json, Math.round(result.getElapsed() / 1e4) / 100.0).append('}');
+            answered.incrementAndGet();
+            send(exchange, 200, json.toString());
+        } catch (TimeoutException e) {
+            limits.cancel();
+            future.cancel(false);
+            if (claimed.compareAndSet(false, true))
+                admission.release();
+            timedOut.incrementAndGet();
+            send(exchange, 504, error("Query did not finish within " + timeoutMillis + " ms"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException) {
+                rejected.incrementAndGet();
+                send(exchange, 400, error(cause.getMessage()));
+            }
+            else
+                send(exchange, 500, error("Internal error: " + cause));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, error("Server is shutting down"));
+        }
+    }
+
+    // Handle /stats: the request counters, the network version and the cache summary
+    private void stats(HttpExchange exchange) throws IOException {
+        StringBuilder json = new StringBuilder("{\"answered\":").append(answered.get())
+            .append(",\"rejected\":").append(rejected.get())
+            .append(",\"refused\":").append(refused.get())
+            .append(",\"timedOut\":").append(timedOut.get())
+            .append(",\"inFlight\":").append(maxInFlight - admission.availablePermits())
+            .append(",\"version\":").append(airline.getVersion())
+            .append(",\"cache\":");
+        Json.quote(json, airline.getCache().toString()).append('}');
+        send(exchange, 200, json.toString());
+    }
+
+    // Return the query string parameters as the fields of a JSON request (numbers where the field is numeric,
+    // via split on commas)
+    private static LinkedHashMap<String, Object> parameters(String query) {
+        LinkedHashMap<String, Object> fields = new LinkedHashMap<String, Object>();
+        if (query == null)
+            return fields;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty())
+                continue;
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            if (name.equals("maxCost") || name.equals("maxHop") || name.equals("limit") || name.equals("maxResults")
+                || name.equals("timeout")) {
+                try {
+                    fields.put(name, Double.valueOf(value));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Field \"" + name + "\" must be a number");
+                }
+            }
+            else if (name.equals("pareto"))
+                fields.put(name, value.isEmpty() || Boolean.parseBoolean(value));
+            else if (name.equals("via"))
+                fields.put(name, value.isEmpty() ? new ArrayList<Object>() : new ArrayList<Object>(Arrays.asList(value.split(","))));
+            else
+                fields.put(name, value);
+        }
+        return fields;
+    }
+
+    // Return the request body as text (at most MAX_BODY_BYTES)
+    private static String body(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+            if (bytes.size() > MAX_BODY_BYTES)
+                throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    // Return an error object
+    private static String error(String message) {
+        return Json.quote(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    // Send a JSON response and close the exchange
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Server client
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        InetAddress address = InetAddress.getLoopbackAddress();
+        int cores = Runtime.getRuntime().availableProcessors();
+        int handlerThreads = 256;
+        int workerThreads = cores;
+        int maxInFlight = 64 * cores;
+        long timeout = 10_000;
+        String updates = null;
+        boolean bounds = false;
+        boolean bidirectional = false;
+        boolean hierarchies = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--bind":          address = InetAddress.getByName(args[++i]); break;
+                case "--threads":       handlerThreads = Integer.parseInt(args[++i]); break;
+                case "--workers":       workerThreads = Integer.parseInt(args[++i]); break;
+                case "--max-in-flight": maxInFlight = Integer.parseInt(args[++i]); break;
+                case "--timeout":       timeout = Long.parseLong(args[++i]); break;
+                case "--updates":       updates = args[++i]; break;
+                case "--bounds":        bounds = true; break;
+                case "--bidirectional": bidirectional = true; break;
+                case "--hierarchies":   hierarchies = true; break;
+                default:                port = Integer.parseInt(args[i]);
+            }
+        }
+
+        Airline airline = new Airline(args[0]);
+        if (bounds)
+            airline.loadBounds(args[0] + ".bounds");
+        if (hierarchies)
+            airline.loadHierarchies(args[0] + ".ch");
+        airline.setBidirectional(bidirectional);
+        if (updates != null)
+            new DeltaWatcher(airline, updates).start();
+        RouteServer server = new RouteServer(airline, address, port, handlerThreads, workerThreads, maxInFlight, timeout);
+        server.start();
+        System.out.println("Serving routes on http://" + address.getHostAddress() + ":" + server.getPort()
+                           + "/route (stats on /stats)");
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ A list of routes from one source city stored as a prefix tree, for result sets of millions of
+ routes. The depth-first search finds routes that share long leading stretches, so instead of
+ one arc array per route every distinct prefix is stored once, as a node (parent node, arc) in
+ primitive arrays; each route is a leaf pointer to its last node plus its totals.
+ A route set is filled by handing it to a search as its visitor (routes are appended in the order
+ they are visited; consecutive routes share their common prefix), then only read. Sorting,
+ filtering and paging (sorted(), filter(), subList()) make read-only views that share the tree
+ and only hold an int per route, and a Route object is built by get() when a route is rendered.
+ Memory: 24 bytes per route plus 8 per prefix node. Deep searches on generated networks need 2-3
+ new nodes per route, so a route takes about 60 bytes against about 100 for a Route object with its
+ arc array, and the fewer hops two consecutive routes differ in, the bigger the saving.
+ Author: Caleb Tsai
+ */
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+public class RouteSet extends AbstractList<Route> implements RandomAccess, RouteEnumerator.Visitor {
+    // The prefix tree shared by a route set and its views; only ever appended to
+    private static final class Tree {
+        private final FlightGraph graph;
+        private final int source;
+        private int nodes = 1;                  // node 0 is the source city
+        private int[] parent = new int[64];
+        private int[] arc = new int[64];
+        private int routes;
+        private int[] leaf = new int[64];
+        private int[] hops = new int[64];
+        private double[] cost = new double[64];
+        private double[] distance = new double[64];
+        private int[] lastArcs = new int[16];   // the route visited last, to share its prefix
+        private int[] lastNodes = new int[17];
+        private int lastHops;
+
+        Tree(FlightGraph graph, int source) {
+            this.graph = graph;
+            this.source = source;
+        }
+    }
+
+    // Attributes of a set: the tree and which of its routes are listed, in what order (routes from .. from + size
+    // of the tree, or the routes order[from .. from + size) when order is set); size is -1 for the set that
+    // fills the tree, which lists every route of it
+    private final Tree tree;
+    private final int[] order;
+    private final int from;
+    private final int size;
+
+    // Constructor: Create an empty set of routes from source, to be filled by a search
+    public RouteSet(FlightGraph graph, int source) {
+        this(new Tree(graph, source), null, 0, -1);
+    }
+
+    // Constructor: Create a view of tree
+    private RouteSet(Tree tree, int[] order, int from, int size) {
+        this.tree = tree;
+        this.order = order;
+        this.from = from;
+        this.size = size;
+    }
+
+    // Append a route found by a search (the first hops arcs of path, copied), sharing its prefix with the
+    // route appended before it
+    public void visit(int[] path, int hops, double cost, double distance) {
+        if (size >= 0)
+            throw new UnsupportedOperationException("A view of a route set is read-only");
+        Tree t = tree;
+        int k = 0;
+        while (k < hops && k < t.lastHops && path[k] == t.lastArcs[k])
+            k++;
+        if (hops > t.lastArcs.length) {
+            t.lastArcs = Arrays.copyOf(t.lastArcs, Math.max(hops, 2 * t.lastArcs.length));
+            t.lastNodes = Arrays.copyOf(t.lastNodes, t.lastArcs.length + 1);
+        }
+        int node = t.lastNodes[k];
+        for (int j = k; j < hops; j++) {
+            if (t.nodes == t.parent.length) {
+                t.parent = Arrays.copyOf(t.parent, 2 * t.nodes);
+                t.arc = Arrays.copyOf(t.arc, 2 * t.nodes);
+            }
+            t.parent[t.nodes] = node;
+            t.arc[t.nodes] = path[j];
+            node = t.nodes++;
+            t.lastArcs[j] = path[j];
+            t.lastNodes[j + 1] = node;
+        }
+        t.lastHops = hops;
+
+        if (t.routes == t.leaf.length) {
+            int n = 2 * t.routes;
+            t.leaf = Arrays.copyOf(t.leaf, n);
+            t.hops = Arrays.copyOf(t.hops, n);
+            t.cost = Arrays.copyOf(t.cost, n);
+            t.distance = Arrays.copyOf(t.distance, n);
+        }
+        t.leaf[t.routes] = node;
+        t.hops[t.routes] = hops;
+        t.cost[t.routes] = cost;
+        t.distance[t.routes] = distance;
+        t.routes++;
+    }
+
+    // Append the first count routes of other (routes from the same source), in its order
+    public void addAll(RouteSet other, int count) {
+        int[] path = new int[16];
+        for (int i = 0; i < count; i++) {
+            if (other.getHops(i) > path.length)
+                path = new int[Math.max(other.getHops(i), 2 * path.length)];
+            int hops = other.arcs(i, path);
+            visit(path, hops, other.getCost(i), other.getDistance(i));
+        }
+    }
+
+    // Return the number of routes listed
+    public int size()   {return size < 0 ? tree.routes : size;}
+
+    // Return the route of the tree at position i
+    private int route(int i) {
+        if (i < 0 || i >= size())
+            throw new IndexOutOfBoundsException("Route " + i + " of " + size());
+        return order == null ? from + i : order[from + i];
+    }
+
+    // Return the i-th route as a Route object (built on every call)
+    public Route get(int i) {
+        int r = route(i);
+        int[] path = new int[tree.hops[r]];
+        arcs(i, path);
+        return new Route(tree.graph, tree.source, path, path.length, tree.cost[r], tree.distance[r]);
+    }
+
+    // Write the arcs of the i-th route into path (at least getHops(i) long); return its number of hops
+    public int arcs(int i, int[] path) {
+        int r = route(i);
+        int node = tree.leaf[r];
+        for (int j = tree.hops[r] - 1; j >= 0; j--, node = tree.parent[node])
+            path[j] = tree.arc[node];
+        return tree.hops[r];
+    }
+
+    // Return the network the routes run on
+    public FlightGraph getGraph()   {return tree.graph;}
+
+    // Return the city every route starts from
+    public int getSource()  {return tree.source;}
+
+    // Return the i-th route's number of hops
+    public int getHops(int i)   {return tree.hops[route(i)];}
+
+    // Return the i-th route's total cost
+    public double getCost(int i)    {return tree.cost[route(i)];}
+
+    // Return the i-th route's total distance
+    public double getDistance(int i)    {return tree.distance[route(i)];}
+
+    // Return the number of prefix nodes stored for the routes (shared with every view)
+    public int nodes()  {return tree.nodes;}
+
+    // Return a read-only view of the routes at positions from (inclusive) to to (exclusive)
+    public RouteSet subList(int from, int to) {
+        if (from < 0 || to > size() || from > to)
+            throw new IndexOutOfBoundsException("Routes " + from + " to " + to + " of " + size());
+        return new RouteSet(tree, order, this.from + from, to - from);
+    }
+
+    // Return a read-only view of the routes with cost <= maxCost and hops <= maxHop, in the same order
+    public RouteSet filter(double maxCost, int maxHop) {
+        int n = size();
+        int[] kept = new int[n];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            int r = route(i);
+            if (tree.cost[r] <= maxCost && tree.hops[r] <= maxHop)
+                kept[k++] = r;
+        }
+        return new RouteSet(tree, k == n ? kept : Arrays.copyOf(kept, k), 0, k);
+    }
+
+    // Return a read-only view of the routes sorted by order (stable: equal routes keep their relative order)
+    public RouteSet sorted(RouteOrder order) {
+        int n = size();
+        int[] positions = new int[n];
+        double[] key = new double[n];
+        for (int i = 0; i < n; i++) {
+            int r = route(i);
+            positions[i] = i;
+            key[i] = order.key(tree.hops[r], tree.cost[r], tree.distance[r]);
+        }
+        mergeSort(positions, new int[n], key, 0, n);
+        int[] routes = new int[n];
+        for (int i = 0; i < n; i++)
+            routes[i] = route(positions[i]);
+        return new RouteSet(tree, routes, 0, n);
+    }
+
+    // Sort the positions routes[lo, hi) by key (stable merge sort; aux is scratch space as long as routes)
+    private static void mergeSort(int[] routes, int[] aux, double[] key, int lo, int hi) {
+        if (hi - lo <= 16) {
+            for (int i = lo + 1; i < hi; i++) {
+                int r = routes[i];
+                int j = i;
+                for (; j > lo && Double.compare(key[routes[j - 1]], key[r]) > 0; j--)
+                    routes[j] = routes[j - 1];
+                routes[j] = r;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(routes, aux, key, lo, mid);
+        mergeSort(routes, aux, key, mid, hi);
+        if (Double.compare(key[routes[mid - 1]], key[routes[mid]]) <= 0)
+            return;
+        System.arraycopy(routes, lo, aux, lo, hi - lo);
+        for (int k = lo, i = lo, j = mid; k < hi; k++) {
+            if (i == mid)
+                routes[k] = aux[j++];
+            else if (j == hi || Double.compare(key[aux[i]], key[aux[j]]) <= 0)
+                routes[k] = aux[i++];
+            else
+                routes[k] = aux[j++];
+        }
+    }
+}
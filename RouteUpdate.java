@@ -0,0 +1,106 @@
+/*
+ One change to the network, by city name, as a line of a delta file:
+   add Berlin Paris 545 200     - a new direct route (distance, then cost, as in the route files)
+   remove Berlin Paris          - drop the direct route between two cities
+   fare Berlin Paris 180        - reprice the direct route between two cities
+ Blank lines and lines starting with # are ignored. Where two cities have several direct routes,
+ remove and fare act on the one added last. See Airline.update() and DeltaWatcher.
+ Author: Caleb Tsai
+ */
+
+public class RouteUpdate {
+    // The kinds of change
+    public enum Kind {ADD, REMOVE, FARE}
+
+    // Attributes of an update (distance is only used by ADD, cost by ADD and FARE)
+    private final Kind kind;
+    private final String from;
+    private final String to;
+    private final double distance;
+    private final double cost;
+
+    // Constructor: Create an update of the given kind between the cities from and to
+    private RouteUpdate(Kind kind, String from, String to, double distance, double cost) {
+        if (from == null || to == null)
+            throw new IllegalArgumentException("An update needs two cities");
+        if (distance < 0 || cost < 0 || Double.isNaN(distance) || Double.isNaN(cost))
+            throw new IllegalArgumentException("Distance and cost must be nonnegative numbers");
+        this.kind = kind;
+        this.from = from;
+        this.to = to;
+        this.distance = distance;
+        this.cost = cost;
+    }
+
+    // Return an update adding a direct route
+    public static RouteUpdate add(String from, String to, double distance, double cost) {
+        return new RouteUpdate(Kind.ADD, from, to, distance, cost);
+    }
+
+    // Return an update removing a direct route
+    public static RouteUpdate remove(String from, String to) {
+        return new RouteUpdate(Kind.REMOVE, from, to, 0.0, 0.0);
+    }
+
+    // Return an update repricing a direct route
+    public static RouteUpdate fare(String from, String to, double cost) {
+        return new RouteUpdate(Kind.FARE, from, to, 0.0, cost);
+    }
+
+    // Return the update written on one line of a delta file, or null for a blank or comment line;
+    // throws IllegalArgumentException if the line is not a valid update
+    public static RouteUpdate parse(String line) {
+        String text = line.trim();
+        if (text.isEmpty() || text.startsWith("#"))
+            return null;
+        String[] tokens = text.split("\\s+");
+        Kind kind;
+        try {
+            kind = Kind.valueOf(tokens[0].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown update \"" + tokens[0] + "\" (use add, remove or fare)");
+        }
+        int expected = kind == Kind.ADD ? 5 : kind == Kind.FARE ? 4 : 3;
+        if (tokens.length != expected)
+            throw new IllegalArgumentException("\"" + tokens[0] + "\" takes " + (expected - 1) + " fields, found " + (tokens.length - 1));
+
+        switch (kind) {
+            case ADD:   return add(tokens[1], tokens[2], number(tokens[3], "distance"), number(tokens[4], "cost"));
+            case FARE:  return fare(tokens[1], tokens[2], number(tokens[3], "cost"));
+            default:    return remove(tokens[1], tokens[2]);
+        }
+    }
+
+    // Return token as a number, or throw an exception naming the field
+    private static double number(String token, String field) {
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number for the " + field + " but found \"" + token + "\"");
+        }
+    }
+
+    // Return the kind of change
+    public Kind getKind()   {return kind;}
+
+    // Return the first city of the route
+    public String getFrom()     {return from;}
+
+    // Return the second city of the route
+    public String getTo()   {return to;}
+
+    // Return the distance of an added route
+    public double getDistance()     {return distance;}
+
+    // Return the cost of an added or repriced route
+    public double getCost()     {return cost;}
+
+    // Return the update as a line of a delta file
+    public String toString() {
+        switch (kind) {
+            case ADD:   return "add " + from + " " + to + " " + distance + " " + cost;
+            case FARE:  return "fare " + from + " " + to + " " + cost;
+            default:    return "remove " + from + " " + to;
+        }
+    }
+}
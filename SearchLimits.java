@@ -0,0 +1,91 @@
+/*
+ Per-query limits on a route search, so a broad query cannot run (or fill the heap) without end:
+   maxRoutes - stop once this many routes are found (0 for no cap)
+   deadline  - stop once this much wall-clock time has passed since the limits were created
+   cancel()  - stop as soon as possible (a cancellation token another thread may trigger)
+ A search checks the clock and the token every CHECK_INTERVAL steps, so the checks cost next to
+ nothing. After the search, stopped() tells why it stopped early (null if it ran to the end) and
+ explored() how many partial routes it extended, a measure of the search space covered.
+ One SearchLimits belongs to one query; it is thread-safe, so the subtrees of a parallel search
+ share it (a cancellation or the deadline stops all of them).
+ Author: Caleb Tsai
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SearchLimits {
+    // Number of search steps between two checks of the clock and the token
+    public static final int CHECK_INTERVAL = 1 << 10;
+
+    // The reasons a search can stop early (key is the name used in JSON results)
+    public enum Stop {
+        MAX_ROUTES("maxResults"),
+        DEADLINE("deadline"),
+        CANCELLED("cancelled");
+
+        private final String key;
+
+        Stop(String key) {
+            this.key = key;
+        }
+
+        // Return the name of the reason in JSON results
+        public String key()     {return key;}
+    }
+
+    // Attributes of the limits (cap, deadline in System.nanoTime() terms, token, outcome)
+    private final long maxRoutes;
+    private final long deadline;
+    private final AtomicLong explored = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile Stop stopped;
+
+    // Constructor: At most maxRoutes routes (0 for no cap), within timeoutMillis from now (0 for no deadline)
+    public SearchLimits(long maxRoutes, long timeoutMillis) {
+        if (maxRoutes < 0 || timeoutMillis < 0)
+            throw new IllegalArgumentException("The route cap and the timeout cannot be negative");
+        this.maxRoutes = maxRoutes == 0 ? Long.MAX_VALUE : maxRoutes;
+        this.deadline = timeoutMillis == 0 ? 0 : System.nanoTime() + timeoutMillis * 1_000_000;
+    }
+
+    // Return limits that never stop a search (they still count the steps explored)
+    public static SearchLimits none()   {return new SearchLimits(0, 0);}
+
+    // Return the most routes a search may return
+    public long maxRoutes()     {return maxRoutes;}
+
+    // Ask every search using these limits to stop as soon as possible
+    public void cancel()    {cancelled = true;}
+
+    // Return true if cancel() was called
+    public boolean isCancelled()    {return cancelled;}
+
+    // Add steps to the steps explored, then return true if the search must stop (cancelled or past the deadline)
+    public boolean check(long steps) {
+        explored.addAndGet(steps);
+        if (stopped != null && stopped != Stop.MAX_ROUTES)
+            return true;
+        if (cancelled)
+            stop(Stop.CANCELLED);
+        else if (deadline != 0 && System.nanoTime() - deadline >= 0)
+            stop(Stop.DEADLINE);
+        else
+            return false;
+        return true;
+    }
+
+    // Record that a search stopped early for reason (the first reason recorded is kept)
+    public synchronized void stop(Stop reason) {
+        if (stopped == null)
+            stopped = reason;
+    }
+
+    // Return why a search stopped early, or null if nothing was cut
+    public Stop stopped()   {return stopped;}
+
+    // Return true if the routes found are only part of the answer
+    public boolean isTruncated()    {return stopped != null;}
+
+    // Return the number of partial routes extended so far
+    public long explored()  {return explored.get();}
+}
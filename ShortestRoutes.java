@@ -0,0 +1,370 @@
+/*
+ Best-route query engine: answers "cheapest", "shortest" or "fewest hops" questions without
+ enumerating every simple route.
+   best()  - the single best route, by hop-constrained Bellman-Ford (one relaxation layer per hop)
+   kBest() - the k best loopless routes in order, by Yen's algorithm on top of the same search
+ The weight of an arc is its cost, its distance or 1, depending on the RouteOrder. Routes must
+ have at most maxHop hops, may be required to pass through other cities, and must cost at most
+ maxCost; when the order is not COST the cost limit and the required cities are checked on the
+ routes Yen's algorithm produces, which stay in weight order, so the answer is still exact (but with
+ required cities it may take many routes that miss them, so Airline.findBestRoutes() leaves such
+ queries to the enumerating search).
+ SearchLimits stop a search early (between layers): the routes accepted so far are returned.
+ To RUN: java ShortestRoutes global.txt Berlin Sydney cost 3 [maxCost maxHop [city ...]]
+ Author: Caleb Tsai
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class ShortestRoutes {
+    private static final int MAX_ENTRIES = Integer.MAX_VALUE - 8;
+
+    // Attributes of the engine (graph plus reusable search arrays: two rolling weight layers, and the
+    // parent arcs as a list per city of the layers where its weight improved, latest first)
+    private final FlightGraph graph;
+    private final boolean[] blockedVertex;
+    private final boolean[] blockedArc;
+    private double[] previous;                  // previous[v]: best weight to v with at most h - 1 hops
+    private double[] current;                   // current[v]: best weight to v with at most h hops
+    private final int[] head;                   // head[v]: latest parent entry of v, -1 if none
+    private int[] entryLayer = new int[64];     // layer h where the weight of the entry's city improved
+    private int[] entryArc = new int[64];       // last arc of the improved route
+    private int[] entryNext = new int[64];      // next older entry of the same city, -1 if none
+    private int entries;
+    private SearchLimits limits;
+    private boolean stopped;                    // true once the limits ended the current kBest()
+
+    // A loopless route found by the engine (arcs from the source plus totals summed in route order)
+    public static class Path {
+        private final int[] arcs;
+        private final int[] vertices;
+        private final double weight;
+        private final double cost;
+        private final double distance;
+
+        private Path(FlightGraph graph, int source, int[] arcs, RouteOrder order) {
+            this.arcs = arcs;
+            this.vertices = new int[arcs.length + 1];
+            vertices[0] = source;
+            double c = 0.0;
+            double d = 0.0;
+            for (int i = 0; i < arcs.length; i++) {
+                vertices[i + 1] = graph.target(arcs[i]);
+                c += graph.cost(arcs[i]);
+                d += graph.distance(arcs[i]);
+            }
+            this.cost = c;
+            this.distance = d;
+            this.weight = order.key(arcs.length, c, d);
+        }
+
+        // Return the arcs of the route, in order from the source
+        public int[] arcs()     {return arcs.clone();}
+
+        // Return the number of hops
+        public int hops()   {return arcs.length;}
+
+        // Return the route's total cost
+        public double cost()    {return cost;}
+
+        // Return the route's total distance
+        public double distance()    {return distance;}
+
+        // Return the route's weight under the order it was searched with
+        public double weight()  {return weight;}
+
+        // Return true if the route passes through city v (endpoints included)
+        public boolean contains(int v) {
+            for (int u : vertices)
+                if (u == v)
+                    return true;
+            return false;
+        }
+
+        // Return true if the route passes through every city in via
+        public boolean containsAll(int[] via) {
+            for (int v : via)
+                if (!contains(v))
+                    return false;
+            return true;
+        }
+    }
+
+    // Constructor: Create an engine over graph (not thread-safe: use one engine per thread)
+    public ShortestRoutes(FlightGraph graph) {
+        this.graph = graph;
+        this.blockedVertex = new boolean[graph.V()];
+        this.blockedArc = new boolean[graph.E()];
+        this.previous = new double[graph.V()];
+        this.current = new double[graph.V()];
+        this.head = new int[graph.V()];
+    }
+
+    // Apply limits to the following searches (null for none)
+    public void setLimits(SearchLimits limits)  {this.limits = limits;}
+
+    // Return the best route under order with cost <= maxCost, hops <= maxHop and through every city in via,
+    // or null if there is none
+    public Path best(int source, int destination, RouteOrder order, double maxCost, int maxHop, int[] via) {
+        List<Path> paths = kBest(source, destination, order, maxCost, maxHop, via, 1);
+        return paths.isEmpty() ? null : paths.get(0);
+    }
+
+    // Return up to k best loopless routes under order (same constraints as best()), best first
+    public List<Path> kBest(int source, int destination, RouteOrder order, double maxCost, int maxHop, int[] via, int k) {
+        List<Path> result = new ArrayList<Path>();
+        maxHop = Math.min(maxHop, graph.V() - 1);
+        stopped = limits != null && limits.check(0);
+        if (k <= 0 || maxHop < 0 || stopped)
+            return result;
+
+        // Special Case: Source is the destination (the empty route)
+        if (source == destination) {
+            Path empty = new Path(graph, source, new int[0], order);
+            if (maxCost >= 0 && empty.containsAll(via))
+                result.add(empty);
+            return result;
+        }
+
+        // Cities that cannot reach the destination within the hop limit are never worth entering
+        DestinationBounds bounds = DestinationBounds.towards(graph, destination, false);
+        if (bounds.hops(source) > maxHop)
+            return result;
+
+        Path first = search(source, destination, maxHop, order, bounds);
+        if (first == null)
+            return result;
+
+        // Yen's algorithm: every accepted route (A) spawns deviations from each of its prefixes (B)
+        List<Path> accepted = new ArrayList<Path>();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>();
+        HashSet<String> seen = new HashSet<String>();
+        long sequence = 0;
+        candidates.add(new Candidate(first, sequence++));
+        seen.add(Arrays.toString(first.arcs));
+
+        while (!candidates.isEmpty() && result.size() < k) {
+            Path path = candidates.poll().path;
+
+            // Routes come out in weight order, so nothing after an over-budget COST route can qualify
+            if (order == RouteOrder.COST && path.cost > DestinationBounds.withSlack(maxCost))
+                break;
+            accepted.add(path);
+            if (path.cost <= maxCost && path.containsAll(via)) {
+                if (limits != null && result.size() == limits.maxRoutes()) {
+                    limits.stop(SearchLimits.Stop.MAX_ROUTES);
+                    break;
+                }
+                result.add(path);
+            }
+            if (result.size() == k)
+                break;
+
+            for (int i = 0; i < path.arcs.length; i++) {
+                int spur = path.vertices[i];
+
+                // Remove the next arc of every accepted route that shares this root, and the root's cities
+                for (Path p : accepted)
+                    if (p.arcs.length > i && sameRoot(p, path, i))
+                        blockedArc[p.arcs[i]] = true;
+                for (int j = 0; j < i; j++)
+                    blockedVertex[path.vertices[j]] = true;
+
+                Path tail = search(spur, destination, maxHop - i, order, bounds);
+                if (stopped)
+                    return result;
+
+                for (Path p : accepted)
+                    if (p.arcs.length > i)
+                        blockedArc[p.arcs[i]] = false;
+                for (int j = 0; j < i; j++)
+                    blockedVertex[path.vertices[j]] = false;
+
+                if (tail == null)
+                    continue;
+                int[] arcs = Arrays.copyOf(path.arcs, i + tail.arcs.length);
+                System.arraycopy(tail.arcs, 0, arcs, i, tail.arcs.length);
+                if (seen.add(Arrays.toString(arcs)))
+                    candidates.add(new Candidate(new Path(graph, source, arcs, order), sequence++));
+            }
+        }
+        return result;
+    }
+
+    // Return true if routes p and q take the same first i arcs
+    private static boolean sameRoot(Path p, Path q, int i) {
+        for (int j = 0; j < i; j++)
+            if (p.arcs[j] != q.arcs[j])
+                return false;
+        return true;
+    }
+
+    // Candidate route waiting in Yen's heap, ordered by weight, then hops, then discovery
+    private static class Candidate implements Comparable<Candidate> {
+        private final Path path;
+        private final long sequence;
+
+        Candidate(Path path, long sequence) {
+            this.path = path;
+            this.sequence = sequence;
+        }
+
+        public int compareTo(Candidate that) {
+            int c = Double.compare(path.weight, that.path.weight);
+            if (c == 0)
+                c = Integer.compare(path.arcs.length, that.path.arcs.length);
+            if (c == 0)
+                c = Long.compare(sequence, that.sequence);
+            return c;
+        }
+    }
+
+    // Return the least-weight route from source to destination with at most maxHop hops that avoids
+    // blocked cities and arcs, or null. Layer h holds the best weights using at most h hops; a layer
+    // only replaces a value when strictly better, so among equal weights the fewest hops win and the
+    // route found never repeats a city. Only the last two layers are kept; the parent arc is recorded
+    // only where a weight improves, so memory grows with the improvements, not with maxHop * V. The limits
+    // are checked after every layer (counting the arcs it relaxed); when they say stop, return null
+    private Path search(int source, int destination, int maxHop, RouteOrder order, DestinationBounds bounds) {
+        int V = graph.V();
+        if (maxHop <= 0 || blockedVertex[source])
+            return null;
+
+        Arrays.fill(previous, Double.POSITIVE_INFINITY);
+        Arrays.fill(head, -1);
+        entries = 0;
+        previous[source] = 0.0;
+        int layers = 0;
+
+        for (int h = 1; h <= maxHop; h++) {
+            System.arraycopy(previous, 0, current, 0, V);
+            boolean changed = false;
+            int relaxed = 0;
+
+            for (int v = 0; v < V; v++) {
+                double wv = previous[v];
+                if (wv == Double.POSITIVE_INFINITY || v == destination || blockedVertex[v])
+                    continue;
+                relaxed += graph.end(v) - graph.begin(v);
+                for (int a = graph.begin(v); a < graph.end(v); a++) {
+                    int w = graph.target(a);
+                    if (blockedArc[a] || blockedVertex[w] || w == source || h + bounds.hops(w) > maxHop)
+                        continue;
+                    double c = wv + order.key(1, graph.cost(a), graph.distance(a));
+                    if (c < current[w]) {
+                        current[w] = c;
+                        setParent(w, h, a);
+                        changed = true;
+                    }
+                }
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+            layers = h;
+            if (limits != null && limits.check(relaxed)) {
+                stopped = true;
+                return null;
+            }
+            if (!changed)
+                break;
+        }
+
+        if (previous[destination] == Double.POSITIVE_INFINITY)
+            return null;
+
+        // Walk the parents back from the destination: the latest improvement of v at or below layer h
+        // is the last arc of its route, which leaves from a city one layer further down
+        int count = 0;
+        int[] reversed = new int[layers];
+        int v = destination;
+        int h = layers;
+        while (v != source) {
+            int e = head[v];
+            while (entryLayer[e] > h)
+                e = entryNext[e];
+            int a = entryArc[e];
+            reversed[count++] = a;
+            v = sourceOf(a);
+            h = entryLayer[e] - 1;
+        }
+        int[] arcs = new int[count];
+        for (int i = 0; i < count; i++)
+            arcs[i] = reversed[count - 1 - i];
+        return new Path(graph, source, arcs, order);
+    }
+
+    // Record arc a as the parent of city w in layer h (replacing an earlier improvement in the same layer)
+    private void setParent(int w, int h, int a) {
+        int e = head[w];
+        if (e >= 0 && entryLayer[e] == h) {
+            entryArc[e] = a;
+            return;
+        }
+        if (entries == entryLayer.length) {
+            if (entries == MAX_ENTRIES)
+                throw new IllegalStateException("Best-route search needs more than " + MAX_ENTRIES + " parent entries");
+            int length = (int) Math.min(2L * entries, MAX_ENTRIES);
+            entryLayer = Arrays.copyOf(entryLayer, length);
+            entryArc = Arrays.copyOf(entryArc, length);
+            entryNext = Arrays.copyOf(entryNext, length);
+        }
+        entryLayer[entries] = h;
+        entryArc[entries] = a;
+        entryNext[entries] = e;
+        head[w] = entries++;
+    }
+
+    // Return the city arc a leaves from (binary search over the CSR offsets)
+    private int sourceOf(int a) {
+        int lo = 0;
+        int hi = graph.V() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (graph.begin(mid) <= a)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    // Return the index of the named city (case-insensitive)
+    private static int cityIndex(FlightGraph graph, String name) {
+        for (int v = 0; v < graph.V(); v++)
+            if (graph.city(v).equalsIgnoreCase(name))
+                return v;
+        throw new IllegalArgumentException("Unknown city: " + name);
+    }
+
+    // Test client: print the k best routes between two cities
+    public static void main(String[] args) throws IOException {
+        FlightGraph graph = RouteFileReader.read(args[0]);
+        int source = cityIndex(graph, args[1]);
+        int destination = cityIndex(graph, args[2]);
+        int[] via = new int[Math.max(0, args.length - 7)];
+        for (int i = 0; i < via.length; i++)
+            via[i] = cityIndex(graph, args[7 + i]);
+        RouteOrder order = RouteOrder.valueOf(args[3].toUpperCase());
+        int k = Integer.parseInt(args[4]);
+        double maxCost = args.length > 5 ? Double.parseDouble(args[5]) : Double.POSITIVE_INFINITY;
+        int maxHop = args.length > 6 ? Integer.parseInt(args[6]) : graph.V();
+
+        long start = System.nanoTime();
+        List<Path> paths = new ShortestRoutes(graph).kBest(source, destination, order, maxCost, maxHop, via, k);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%d best routes by %s (%.2f ms):%n", paths.size(), order.description(), elapsed / 1e6);
+        for (Path p : paths) {
+            StringBuilder route = new StringBuilder(graph.city(source));
+            for (int a : p.arcs)
+                route.append(" -> ").append(graph.city(graph.target(a)));
+            System.out.printf("Cost: $%,.2f -- Distance: %,.1f -- Hops: %d -- %s%n", p.cost(), p.distance(), p.hops(), route);
+        }
+    }
+}
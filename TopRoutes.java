@@ -0,0 +1,164 @@
+/*
+ Keeps only the k best routes of a search under a RouteOrder, using a bounded max-heap.
+ Routes that tie on the key keep the order in which the search found them, so the result
+ is exactly the first k routes of a stable sort of the full result set.
+ Once the heap is full, limit() is the key of the worst route kept; RouteEnumerator uses it
+ to cut every branch whose lower bound is already worse, so the work and memory of a query
+ depend on k instead of on the number of routes within budget. A bound known in advance (e.g.
+ the weight of the best route) keeps the limit that low from the start.
+ Author: Caleb Tsai
+ */
+
+import java.util.Arrays;
+
+public class TopRoutes implements RouteEnumerator.BoundedVisitor {
+    // Attributes of the heap (parallel arrays, slot i describes one kept route; grown up to k slots)
+    private final RouteOrder order;
+    private final int k;
+    private final double bound;
+    private int[] heap = new int[0];    // slots ordered as a max-heap on (key, seq)
+    private double[] key = new double[0];
+    private long[] seq = new long[0];
+    private int[][] arcs = new int[0][];
+    private int[] hops = new int[0];
+    private double[] cost = new double[0];
+    private double[] distance = new double[0];
+    private int n;
+    private long found;
+    private int[] ranked;
+
+    // Constructor: Keep the k best routes under order
+    public TopRoutes(RouteOrder order, int k) {
+        this(order, k, Double.POSITIVE_INFINITY);
+    }
+
+    // Constructor: Keep the k best routes under order whose key is at most bound
+    public TopRoutes(RouteOrder order, int k, double bound) {
+        if (k <= 0)
+            throw new IllegalArgumentException("Number of routes to keep must be positive");
+        this.order = order;
+        this.k = k;
+        this.bound = bound;
+    }
+
+    // Return the order routes are ranked by
+    public RouteOrder order()   {return order;}
+
+    // Return the key a route must beat to be kept (the bound until k routes are kept)
+    public double limit() {
+        return n < k ? bound : key[heap[0]];
+    }
+
+    // Offer a route found by the search
+    public void visit(int[] path, int routeHops, double routeCost, double routeDistance) {
+        long s = found++;
+        double routeKey = order.key(routeHops, routeCost, routeDistance);
+        if (routeKey > bound)
+            return;
+
+        // Heap not full yet: add a slot. Full: replace the worst route if this one is strictly better
+        // (an equal key loses the tie because it was found later)
+        int slot;
+        if (n < k) {
+            if (n == heap.length)
+                grow();
+            slot = n;
+        }
+        else if (routeKey < key[heap[0]])
+            slot = heap[0];
+        else
+            return;
+
+        // Fill the slot (a copy of the arcs is the only allocation, and only for routes that are kept)
+        arcs[slot] = Arrays.copyOf(path, routeHops);
+        key[slot] = routeKey;
+        seq[slot] = s;
+        hops[slot] = routeHops;
+        cost[slot] = routeCost;
+        distance[slot] = routeDistance;
+        ranked = null;
+
+        if (n < k) {
+            heap[n] = slot;
+            swim(n++);
+        }
+        else
+            sink(0);
+    }
+
+    // Double the slot arrays (never beyond k)
+    private void grow() {
+        int size = (int) Math.min(k, Math.max(16, 2L * heap.length));
+        heap = Arrays.copyOf(heap, size);
+        key = Arrays.copyOf(key, size);
+        seq = Arrays.copyOf(seq, size);
+        arcs = Arrays.copyOf(arcs, size);
+        hops = Arrays.copyOf(hops, size);
+        cost = Arrays.copyOf(cost, size);
+        distance = Arrays.copyOf(distance, size);
+    }
+
+    // Return the number of routes kept
+    public int size()   {return n;}
+
+    // Return the number of routes the search offered (kept or not)
+    public long found()     {return found;}
+
+    // Return the arcs of the route at the given rank (0 = best)
+    public int[] arcs(int rank)     {return arcs[rank(rank)];}
+
+    // Return the hops of the route at the given rank
+    public int hops(int rank)   {return hops[rank(rank)];}
+
+    // Return the cost of the route at the given rank
+    public double cost(int rank)    {return cost[rank(rank)];}
+
+    // Return the distance of the route at the given rank
+    public double distance(int rank)    {return distance[rank(rank)];}
+
+    // Return the slot holding the route at the given rank, sorting the kept routes on first use
+    private int rank(int r) {
+        if (r < 0 || r >= n)
+            throw new IndexOutOfBoundsException("Rank " + r + " is not between 0 and " + (n - 1));
+        if (ranked == null) {
+            Integer[] slots = new Integer[n];
+            for (int i = 0; i < n; i++)
+                slots[i] = heap[i];
+            Arrays.sort(slots, (x, y) -> less(x, y) ? -1 : (less(y, x) ? 1 : 0));
+            ranked = new int[n];
+            for (int i = 0; i < n; i++)
+                ranked[i] = slots[i];
+        }
+        return ranked[r];
+    }
+
+    // Return true if the route in slot x ranks before the route in slot y
+    private boolean less(int x, int y) {
+        int c = Double.compare(key[x], key[y]);
+        return c < 0 || (c == 0 && seq[x] < seq[y]);
+    }
+
+    // Heap helper functions (max-heap: the worst route kept is at heap[0])
+    private void swim(int i) {
+        while (i > 0 && less(heap[(i - 1) / 2], heap[i])) {
+            exch(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void sink(int i) {
+        while (2 * i + 1 < n) {
+            int j = 2 * i + 1;
+            if (j + 1 < n && less(heap[j], heap[j + 1])) j++;
+            if (!less(heap[i], heap[j])) break;
+            exch(i, j);
+            i = j;
+        }
+    }
+
+    private void exch(int i, int j) {
+        int swap = heap[i];
+        heap[i] = heap[j];
+        heap[j] = swap;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ The cities a route is required to pass through (at most 64), tracked during a search as a
+ bit mask of the required cities visited so far.
+ For every required city the search also knows the cheapest cost and fewest hops to reach it
+ (a DestinationBounds towards that city), so a branch is cut as soon as some required city
+ that is still missing can no longer be visited on the way to the destination within budget.
+ A required city that is the source or the destination counts as visited from the start,
+ matching the old third-city rule (the city may appear anywhere on the route).
+ Author: Caleb Tsai
+ */
+
+import java.util.Arrays;
+
+public class ViaCities {
+    public static final int MAX_CITIES = 64;
+
+    // Attributes of the constraint (required cities, their bits, bounds towards each of them)
+    private final int[] cities;
+    private final long[] bit;
+    private final DestinationBounds[] toCity;
+    private final DestinationBounds toDestination;
+    private final long all;
+    private final long initial;
+
+    // Constructor: Require every city in cities on routes from source to toDestination.destination()
+    public ViaCities(FlightGraph graph, int[] cities, int source, DestinationBounds toDestination) {
+        if (cities.length > MAX_CITIES)
+            throw new IllegalArgumentException("At most " + MAX_CITIES + " required cities are supported");
+        this.cities = cities.clone();
+        this.bit = new long[graph.V()];
+        this.toCity = new DestinationBounds[cities.length];
+        this.toDestination = toDestination;
+
+        long mask = 0;
+        long start = 0;
+        for (int i = 0; i < cities.length; i++) {
+            int c = cities[i];
+            if (bit[c] != 0)
+                continue;       // listed twice
+            bit[c] = 1L << i;
+            mask |= bit[c];
+            if (c == source || c == toDestination.destination())
+                start |= bit[c];
+            else
+                toCity[i] = DestinationBounds.towards(graph, c, false);
+        }
+        this.all = mask;
+        this.initial = start;
+    }
+
+    // Return the required cities
+    public int[] cities()   {return cities.clone();}
+
+    // Return the mask of required cities already visited before the search leaves the source
+    public long initialMask()   {return initial;}
+
+    // Return the mask with every required city visited
+    public long allMask()   {return all;}
+
+    // Return the bit of city v (0 if v is not required)
+    public long bit(int v)  {return bit[v];}
+
+    // Return true if a route standing at v, having visited the required cities in mask, might still visit
+    // every missing one and then reach the destination within maxCost and maxHop
+    public boolean canFinish(int v, long mask, double currCost, int currHop, double maxCost, int maxHop) {
+        long missing = all & ~mask;
+        double limit = DestinationBounds.withSlack(maxCost);
+        while (missing != 0) {
+            int i = Long.numberOfTrailingZeros(missing);
+            missing &= missing - 1;
+            int c = cities[i];
+            if (currCost + toCity[i].cost(v) + toDestination.cost(c) > limit
+                || (long) currHop + toCity[i].hops(v) + toDestination.hops(c) > maxHop)
+                return false;
+        }
+        return true;
+    }
+
+    // Return a printable list of the required city indices
+    public String toString() {
+        return Arrays.toString(cities);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ Default-package implementation of airline.bench.Workload: the only benchmark class that
+ calls the route tracker directly (see Workload for why).
+ Author: Caleb Tsai
+ */
+
+import airline.bench.Workload;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+public class BenchmarkWorkload implements Workload {
+    // Attributes of the workload (open network, its menu object, a reusable enumerator)
+    private FlightGraph graph;
+    private Airline airline;
+    private RouteEnumerator enumerator;
+    private long checksum;
+
+    // Load a network: a route file, a snapshot, or "geometric-V-D" / "hub-V-D" (NetworkGenerator, seed 1)
+    public void open(String network) throws IOException {
+        if (network.startsWith("geometric-") || network.startsWith("hub-")) {
+            String[] parts = network.split("-");
+            int V = Integer.parseInt(parts[1]);
+            graph = new NetworkGenerator(V, NetworkGenerator.Topology.valueOf(parts[0].toUpperCase()),
+                                         Double.parseDouble(parts[2]), NetworkGenerator.Degrees.POISSON,
+                                         Math.max(1, (int) Math.sqrt(V)), 2500, 1).generate();
+        }
+        else
+            graph = GraphSnapshot.isSnapshot(network) ? GraphSnapshot.read(network) : RouteFileReader.read(network);
+        airline = new Airline(graph);
+        enumerator = new RouteEnumerator(graph);
+    }
+
+    // Return the number of cities in the open network
+    public int cities()     {return graph.V();}
+
+    // Return the average cost of a direct route
+    public double averageCost() {
+        double total = 0.0;
+        for (int a = 0; a < graph.E(); a++)
+            total += graph.cost(a);
+        return graph.E() == 0 ? 0.0 : total / graph.E();
+    }
+
+    // Write the open network as a route file and as a snapshot
+    public void save(String textFile, String snapshotFile) throws IOException {
+        NetworkGenerator.write(graph, textFile);
+        GraphSnapshot.write(graph, snapshotFile);
+    }
+
+    // Return a new Airline read from file
+    public Object loadAirline(String file) throws IOException {
+        return new Airline(file);
+    }
+
+    // Return the network of a route file
+    public Object readRouteFile(String file) throws IOException {
+        return RouteFileReader.read(file);
+    }
+
+    // Return the network of a snapshot
+    public Object readSnapshot(String file) throws IOException {
+        return GraphSnapshot.read(file);
+    }
+
+    // Enumerate a query without building routes
+    public long countRoutes(int source, int destination, double maxCost, int maxHop) {
+        checksum = 0;
+        enumerator.enumerate(source, destination, maxCost, maxHop, (path, hops, cost, distance) -> checksum += hops);
+        return checksum;
+    }
+
+    // Return the routes of a query as Route objects
+    public Object findRoutes(int source, int destination, double maxCost, int maxHop) {
+        ArrayList<Route> routes = new ArrayList<Route>();
+        enumerator.enumerate(source, destination, maxCost, maxHop,
+            (path, hops, cost, distance) -> routes.add(new Route(graph, source, path, hops, cost, distance)));
+        return routes;
+    }
+
+    // Return the number of routes in a list
+    public int size(Object routes)  {return list(routes).size();}
+
+    // Return the concatenation of two route lists
+    public Object concat(Object first, Object second) {
+        ArrayList<Route> both = new ArrayList<Route>(list(first));
+        both.addAll(list(second));
+        return both;
+    }
+
+    // Return a sorted copy of a route list
+    public Object sortCopy(Object routes, String order) {
+        ArrayList<Route> copy = new ArrayList<Route>(list(routes));
+        Collections.sort(copy, RouteOrder.valueOf(order));
+        return copy;
+    }
+
+    // Return new Route objects with the same arcs and totals
+    public Object rebuild(Object routes) {
+        ArrayList<Route> original = list(routes);
+        ArrayList<Route> copy = new ArrayList<Route>(original.size());
+        int[] arcs = new int[graph.V()];
+        for (Route r : original) {
+            for (int i = 0; i < r.getHops(); i++)
+                arcs[i] = r.getArc(i);
+            copy.add(new Route(graph, r.getSource(), arcs, r.getHops(), r.getCost(), r.getDistance()));
+        }
+        return copy;
+    }
+
+    // Return the display text of every route
+    public Object render(Object routes) {
+        ArrayList<Route> original = list(routes);
+        String[] text = new String[original.size()];
+        for (int i = 0; i < text.length; i++)
+            text[i] = original.get(i).toString();
+        return text;
+    }
+
+    // Return Option 1B's listing
+    public String directRoutes()    {return airline.getDirectRoutes();}
+
+    // Return routes as the list type findRoutes produced
+    @SuppressWarnings("unchecked")
+    private static ArrayList<Route> list(Object routes) {
+        return (ArrayList<Route>) routes;
+    }
+}
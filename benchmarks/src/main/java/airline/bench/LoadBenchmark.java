@@ -0,0 +1,66 @@
+/*
+ Loading a network: the full Airline(String) constructor, the route file parser alone, and
+ reading the binary snapshot. Generated networks are written to temporary files first.
+ Author: Caleb Tsai
+ */
+
+package airline.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+    // Attributes of the benchmark (the files to load)
+    private String textFile;
+    private File savedText;
+    private File snapshot;
+
+    // Write the snapshot (and the route file of a generated network)
+    @Setup(Level.Trial)
+    public void files(NetworkState state) throws IOException {
+        savedText = File.createTempFile("network", ".txt");
+        snapshot = File.createTempFile("network", ".snap");
+        state.workload.save(savedText.getPath(), snapshot.getPath());
+        textFile = state.network.contains("-") ? savedText.getPath() : state.network;
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        savedText.delete();
+        snapshot.delete();
+    }
+
+    @Benchmark
+    public Object airlineConstructor(NetworkState state) throws IOException {
+        return state.workload.loadAirline(textFile);
+    }
+
+    @Benchmark
+    public Object routeFileReader(NetworkState state) throws IOException {
+        return state.workload.readRouteFile(textFile);
+    }
+
+    @Benchmark
+    public Object snapshotRead(NetworkState state) throws IOException {
+        return state.workload.readSnapshot(snapshot.getPath());
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ The network a benchmark runs against, plus a fixed set of city pairs to query.
+ Generated networks ("geometric-V-D", "hub-V-D", see NetworkGenerator) cover sizes and shapes
+ the bundled files do not reach.
+ Author: Caleb Tsai
+ */
+
+package airline.bench;
+
+import java.io.IOException;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class NetworkState {
+    public static final int PAIRS = 64;     // power of two, see nextPair()
+
+    @Param({"pennsylvania.txt", "global.txt", "geometric-2000-6", "hub-2000-3"})
+    public String network;
+
+    // Attributes of the state (workload with the network open, the query pairs, the next pair)
+    public Workload workload;
+    public final int[] source = new int[PAIRS];
+    public final int[] destination = new int[PAIRS];
+    private int next;
+
+    // Open the network and draw the query pairs (fixed seed, distinct endpoints)
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        workload = Workload.create();
+        workload.open(network);
+        Random random = new Random(42);
+        int V = workload.cities();
+        for (int i = 0; i < PAIRS; i++) {
+            source[i] = random.nextInt(V);
+            do {
+                destination[i] = random.nextInt(V);
+            } while (V > 1 && destination[i] == source[i]);
+        }
+    }
+
+    // Return the index of the next query pair (cycles through all of them)
+    public int nextPair() {
+        next = (next + 1) & (PAIRS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ Building and displaying routes: constructing Route objects, rendering them with toString(),
+ and Option 1B's direct route listing (getDirectRoutes()).
+ Author: Caleb Tsai
+ */
+
+package airline.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteBenchmark {
+    @Benchmark
+    public Object construct(NetworkState state, RouteSetState routes) {
+        return state.workload.rebuild(routes.routes);
+    }
+
+    @Benchmark
+    public Object render(NetworkState state, RouteSetState routes) {
+        return state.workload.render(routes.routes);
+    }
+
+    @Benchmark
+    public String directRoutes(NetworkState state) {
+        return state.workload.directRoutes();
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ A fixed list of routes for the sorting and rendering benchmarks: the routes of NetworkState's
+ query pairs under a generous budget, concatenated until there are at least TARGET of them
+ (or every pair was used).
+ Author: Caleb Tsai
+ */
+
+package airline.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class RouteSetState {
+    public static final int TARGET = 20_000;
+
+    // Attributes of the state (the routes, in search order)
+    public Object routes;
+
+    @Setup(Level.Trial)
+    public void collect(NetworkState state) {
+        double maxCost = 6 * state.workload.averageCost();
+        routes = state.workload.findRoutes(state.source[0], state.destination[0], maxCost, 6);
+        for (int i = 1; i < NetworkState.PAIRS && state.workload.size(routes) < TARGET; i++)
+            routes = state.workload.concat(routes, state.workload.findRoutes(state.source[i], state.destination[i], maxCost, 6));
+    }
+}
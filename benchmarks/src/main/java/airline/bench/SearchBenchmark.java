@@ -0,0 +1,57 @@
+/*
+ Route enumeration for varying budgets. maxCost is a multiple of the network's average direct
+ route cost, so the same parameters mean a comparable budget on every network. countRoutes
+ measures the search alone, findRoutes adds building a Route object for every route found.
+ Each call queries the next of NetworkState's fixed city pairs.
+ Author: Caleb Tsai
+ */
+
+package airline.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    @Param({"2", "3", "4", "6"})
+    public int maxHop;
+
+    @Param({"1", "2", "4"})
+    public double costFactor;
+
+    // Attributes of the benchmark (the cost limit for this network)
+    private double maxCost;
+
+    @Setup(Level.Trial)
+    public void budget(NetworkState state) {
+        maxCost = costFactor * state.workload.averageCost();
+    }
+
+    @Benchmark
+    public long countRoutes(NetworkState state) {
+        int i = state.nextPair();
+        return state.workload.countRoutes(state.source[i], state.destination[i], maxCost, maxHop);
+    }
+
+    @Benchmark
+    public Object findRoutes(NetworkState state) {
+        int i = state.nextPair();
+        return state.workload.findRoutes(state.source[i], state.destination[i], maxCost, maxHop);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ Sorting a route list with each RouteOrder comparator, as Option 2's view menu does.
+ Every call sorts a fresh copy of the same unsorted list (the copy is linear, the sort is not).
+ Author: Caleb Tsai
+ */
+
+package airline.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+    @Param({"HOPS", "COST", "DISTANCE"})
+    public String order;
+
+    @Benchmark
+    public Object sort(NetworkState state, RouteSetState routes) {
+        return state.workload.sortCopy(routes.routes, order);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ The operations the benchmarks measure, seen through an interface.
+ JMH only accepts benchmarks in a named package, and code in a named package cannot refer to
+ the route tracker's classes, which live in the default package. BenchmarkWorkload (default
+ package, in this module) implements this interface by calling the program directly, and the
+ benchmarks load it once by name; after that every call is a plain interface call.
+ Values the benchmarks only pass back in or hand to a Blackhole are typed Object.
+ Author: Caleb Tsai
+ */
+
+package airline.bench;
+
+import java.io.IOException;
+
+public interface Workload {
+    // Return a new workload (the default-package implementation, loaded by name)
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("BenchmarkWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkWorkload is missing from the benchmark jar", e);
+        }
+    }
+
+    // Load a network: a route file, a snapshot, or "geometric-V-D" / "hub-V-D" for a NetworkGenerator
+    // network with V cities and mean degree D (fixed seed)
+    void open(String network) throws IOException;
+
+    // Return the number of cities in the open network
+    int cities();
+
+    // Return the average cost of a direct route in the open network
+    double averageCost();
+
+    // Write the open network as a route file and as a snapshot
+    void save(String textFile, String snapshotFile) throws IOException;
+
+    // Return a new Airline read from file (route file or snapshot)
+    Object loadAirline(String file) throws IOException;
+
+    // Return the network of a route file, read with RouteFileReader
+    Object readRouteFile(String file) throws IOException;
+
+    // Return the network of a snapshot, read with GraphSnapshot
+    Object readSnapshot(String file) throws IOException;
+
+    // Enumerate the routes of a query without building Route objects; return a checksum of the hops
+    long countRoutes(int source, int destination, double maxCost, int maxHop);
+
+    // Return the routes of a query as Route objects, in search order (never from the cache)
+    Object findRoutes(int source, int destination, double maxCost, int maxHop);
+
+    // Return the number of routes in a list returned by findRoutes
+    int size(Object routes);
+
+    // Return the concatenation of two route lists
+    Object concat(Object first, Object second);
+
+    // Return a sorted copy of a route list (order: HOPS, COST or DISTANCE)
+    Object sortCopy(Object routes, String order);
+
+    // Return new Route objects with the same arcs and totals as routes
+    Object rebuild(Object routes);
+
+    // Return the display text of every route in routes
+    Object render(Object routes);
+
+    // Return Option 1B's listing of the direct routes
+    String directRoutes();
+}